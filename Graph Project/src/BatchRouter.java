@@ -0,0 +1,429 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Routes a stream of (source, destination) pairs, one pair per line, and
+ * writes one result per pair in input order.
+ *
+ * Pairs are read in windows of -window lines. Within a window they are chained
+ * by source, so each distinct source needs one search
+ * (DijkstraAlgorithm.searchTargets) however many of its destinations follow.
+ * The search stops once all of them are settled, and the routes are read
+ * straight from the engine's arrays. The groups of a window run on a fixed
+ * pool of -threads workers. Reading, routing and writing overlap: while the
+ * workers route one window, the writer drains the one before and the reader
+ * fills the next. A fixed set of windows is recycled between the three, so
+ * memory stays at a few windows plus one engine per worker for any number of
+ * pairs. Input sorted or clustered by source benefits most, since grouping
+ * only sees one window at a time.
+ *
+ * Input lines are "source,destination" (a tab works too). Blank lines and
+ * lines starting with '#' are skipped. A pair naming an unknown city still
+ * gets its output line, with no distance.
+ *
+ * Output formats:
+ * - csv: "source,destination,distance[,path]". The distance is empty when
+ *   there is no route. With -paths the route follows as cities joined by ';'.
+ * - binary: header "ROUT" and version 1 (ints), then per pair three little
+ *   endian ints: source index, destination index, distance. An unknown city
+ *   has index -1, and the distance is -1 when there is no route.
+ *
+ * Usage:
+ *   java BatchRouter -data cities.csv [-in pairs.csv|-] [-out routes.csv|routes.bin|-]
+ *                    [-format csv|binary] [-threads n] [-window 65536] [-paths]
+ */
+public class BatchRouter {
+    public enum Format {
+        CSV,
+        BINARY
+    }
+
+    private static final int MAGIC = 0x54554f52; // "ROUT" in little endian
+    private static final int VERSION = 1;
+    private static final int NO_ROUTE = -1;
+    // windows in circulation: one being read, one being routed, one being written
+    private static final int WINDOWS = 3;
+    private static final long PROGRESS_INTERVAL_NANOS = 5000000000L;
+
+    private final Graph graph;
+    private final int threads;
+    private final int windowSize;
+    private final Format format;
+    private final boolean includePaths;
+
+    // source chains of the window being read, -1 where a city heads no chain
+    private final int[] chainHead;
+
+    private long pairsRouted;
+    private long treesBuilt;
+    private long elapsedNanos;
+
+    public BatchRouter(Graph graph, int threads, int windowSize, Format format, boolean includePaths) {
+        if (threads < 1 || windowSize < 1) {
+            throw new IllegalArgumentException("Threads and window size must be at least 1");
+        }
+        this.graph = graph;
+        this.threads = threads;
+        this.windowSize = windowSize;
+        this.format = format;
+        this.includePaths = includePaths;
+        graph.freeze();
+        this.chainHead = new int[graph.getNumCities()];
+        for (int i = 0; i < chainHead.length; i++) {
+            chainHead[i] = -1;
+        }
+    }
+
+    public long getPairsRouted() {
+        return pairsRouted;
+    }
+
+    public long getTreesBuilt() {
+        return treesBuilt;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRoutesPerSecond() {
+        return elapsedNanos == 0 ? 0 : pairsRouted * 1e9 / elapsedNanos;
+    }
+
+    // pairs of one window and their results, reused once written
+    private class Window {
+        final String[] sourceNames = new String[windowSize];
+        final String[] destinationNames = new String[windowSize];
+        final int[] sources = new int[windowSize];
+        final int[] destinations = new int[windowSize];
+        final int[] distances = new int[windowSize];
+        final String[] paths = includePaths ? new String[windowSize] : null;
+        // pairs of a group are chained through next, starting at groupFirst
+        final int[] next = new int[windowSize];
+        final int[] groupSource = new int[windowSize];
+        final int[] groupFirst = new int[windowSize];
+        int size;
+        int groups;
+        boolean last;
+        CountDownLatch routed;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+    }
+
+    /**
+     * Routes every pair of in and writes the results to out, which is flushed
+     * but not closed.
+     */
+    public void route(InputStream in, OutputStream out) throws IOException {
+        long startTime = System.nanoTime();
+        pairsRouted = 0;
+        treesBuilt = 0;
+        ArrayBlockingQueue<Window> free = new ArrayBlockingQueue<>(WINDOWS);
+        ArrayBlockingQueue<Window> filled = new ArrayBlockingQueue<>(WINDOWS);
+        for (int i = 0; i < WINDOWS; i++) {
+            free.add(new Window());
+        }
+        ThreadLocal<DijkstraAlgorithm> engines = ThreadLocal.withInitial(() -> new DijkstraAlgorithm(graph));
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicReference<Throwable> writerFailure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                writeWindows(filled, free, out);
+            } catch (Throwable e) {
+                writerFailure.set(e);
+                // unblock the reader, which may be waiting for a free window
+                free.clear();
+                for (int i = 0; i < WINDOWS; i++) {
+                    free.offer(new Window());
+                }
+            }
+        }, "batch-router-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            boolean more = true;
+            while (more && writerFailure.get() == null) {
+                Window window = free.take();
+                more = fill(window, reader);
+                treesBuilt += window.groups;
+                window.routed = new CountDownLatch(window.groups);
+                for (int g = 0; g < window.groups; g++) {
+                    int group = g;
+                    workers.execute(() -> routeGroup(window, group, engines.get()));
+                }
+                filled.put(window);
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while routing", e);
+        } finally {
+            workers.shutdownNow();
+            // only still waiting if reading failed
+            writer.interrupt();
+        }
+        Throwable failure = writerFailure.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Routing failed", failure);
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    // reads up to windowSize pairs and chains them by source; false once the input is exhausted
+    private boolean fill(Window window, BufferedReader reader) throws IOException {
+        window.size = 0;
+        window.groups = 0;
+        window.failure.set(null);
+        String line = null;
+        while (window.size < windowSize && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int separator = line.indexOf(',');
+            if (separator == -1) {
+                separator = line.indexOf('\t');
+            }
+            String source = separator == -1 ? line : line.substring(0, separator).trim();
+            String destination = separator == -1 ? "" : line.substring(separator + 1).trim();
+            int i = window.size++;
+            window.sourceNames[i] = source;
+            window.destinationNames[i] = destination;
+            window.sources[i] = graph.getCityIndex(source);
+            window.destinations[i] = graph.getCityIndex(destination);
+            window.distances[i] = NO_ROUTE;
+            if (window.paths != null) {
+                window.paths[i] = "";
+            }
+        }
+
+        // pairs are prepended to their chain, so walk backwards to keep input order
+        for (int i = window.size - 1; i >= 0; i--) {
+            int source = window.sources[i];
+            if (source == -1 || window.destinations[i] == -1) {
+                continue;
+            }
+            window.next[i] = chainHead[source];
+            chainHead[source] = i;
+        }
+        for (int i = 0; i < window.size; i++) {
+            int source = window.sources[i];
+            if (source != -1 && chainHead[source] == i) {
+                window.groupSource[window.groups] = source;
+                window.groupFirst[window.groups] = i;
+                window.groups++;
+                chainHead[source] = -1;
+            }
+        }
+        window.last = line == null;
+        return !window.last;
+    }
+
+    private void routeGroup(Window window, int group, DijkstraAlgorithm engine) {
+        try {
+            for (int i = window.groupFirst[group]; i != -1; i = window.next[i]) {
+                engine.addTarget(window.destinations[i]);
+            }
+            engine.searchTargets(window.groupSource[group]);
+            for (int i = window.groupFirst[group]; i != -1; i = window.next[i]) {
+                int destination = window.destinations[i];
+                int distance = engine.getDistance(destination);
+                if (distance != Integer.MAX_VALUE) {
+                    window.distances[i] = distance;
+                    if (window.paths != null) {
+                        window.paths[i] = joinPath(engine, destination);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            window.failure.compareAndSet(null, e);
+        } finally {
+            window.routed.countDown();
+        }
+    }
+
+    private String joinPath(DijkstraAlgorithm engine, int destination) {
+        int hops = 0;
+        for (int node = destination; node != -1; node = engine.getParent(node)) {
+            hops++;
+        }
+        String[] names = new String[hops];
+        for (int node = destination; node != -1; node = engine.getParent(node)) {
+            names[--hops] = graph.getCityName(node);
+        }
+        return String.join(";", names);
+    }
+
+    private void writeWindows(ArrayBlockingQueue<Window> filled, ArrayBlockingQueue<Window> free, OutputStream out)
+            throws IOException, InterruptedException {
+        Writer text = format == Format.CSV
+                ? new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16) : null;
+        OutputStream binary = format == Format.BINARY ? new BufferedOutputStream(out, 1 << 16) : null;
+        byte[] record = new byte[12];
+        if (binary != null) {
+            putInt(record, 0, MAGIC);
+            putInt(record, 4, VERSION);
+            binary.write(record, 0, 8);
+        }
+        long lastReport = System.nanoTime();
+        long written = 0;
+        while (true) {
+            Window window = filled.take();
+            window.routed.await();
+            if (window.failure.get() != null) {
+                throw new IllegalStateException("Routing failed", window.failure.get());
+            }
+            for (int i = 0; i < window.size; i++) {
+                if (text != null) {
+                    writeCsv(text, window, i);
+                } else {
+                    putInt(record, 0, window.sources[i]);
+                    putInt(record, 4, window.destinations[i]);
+                    putInt(record, 8, window.distances[i]);
+                    binary.write(record);
+                }
+            }
+            written += window.size;
+            pairsRouted = written;
+            long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                lastReport = now;
+                System.err.println("  " + written + " routes written");
+            }
+            boolean last = window.last;
+            free.put(window);
+            if (last) {
+                break;
+            }
+        }
+        if (text != null) {
+            text.flush();
+        } else {
+            binary.flush();
+        }
+    }
+
+    private void writeCsv(Writer text, Window window, int i) throws IOException {
+        text.write(csvField(window.sources[i] == -1 ? window.sourceNames[i] : graph.getCityName(window.sources[i])));
+        text.write(',');
+        text.write(csvField(window.destinations[i] == -1
+                ? window.destinationNames[i] : graph.getCityName(window.destinations[i])));
+        text.write(',');
+        if (window.distances[i] != NO_ROUTE) {
+            text.write(Integer.toString(window.distances[i]));
+        }
+        if (window.paths != null) {
+            text.write(',');
+            text.write(csvField(window.paths[i]));
+        }
+        text.write('\n');
+    }
+
+    // quotes a field that holds a separator or a quote
+    private static String csvField(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static Graph loadGraph(String filename) throws IOException {
+        if (filename.endsWith(".csv")) {
+            return CSVParser.parseCSVWithSnapshot(filename);
+        }
+        if (filename.endsWith(".graph")) {
+            return Graph.loadSnapshot(filename);
+        }
+        return new EdgeListParser().parse(filename);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String data = "Turkish cities.csv";
+        String input = "-";
+        String output = "-";
+        Format format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int windowSize = 65536;
+        boolean includePaths = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-paths")) {
+                includePaths = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "-data":
+                    data = value;
+                    break;
+                case "-in":
+                    input = value;
+                    break;
+                case "-out":
+                    output = value;
+                    break;
+                case "-format":
+                    format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "-window":
+                    windowSize = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i - 1]);
+            }
+        }
+        if (format == null) {
+            format = output.endsWith(".bin") ? Format.BINARY : Format.CSV;
+        }
+        if (format == Format.BINARY && includePaths) {
+            throw new IllegalArgumentException("Paths are only written in csv format");
+        }
+
+        Graph graph = loadGraph(data);
+        BatchRouter router = new BatchRouter(graph, threads, windowSize, format, includePaths);
+        try (InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+             OutputStream out = output.equals("-") ? System.out : new FileOutputStream(output)) {
+            router.route(in, out);
+        }
+        double seconds = router.getElapsedNanos() / 1e9;
+        System.err.println("Routed " + router.getPairsRouted() + " pairs with " + router.getTreesBuilt()
+                + " shortest-path trees in " + String.format("%.2f", seconds) + " s ("
+                + String.format("%.0f", router.getRoutesPerSecond()) + " routes/s)");
+    }
+}
@@ -1,9 +1,12 @@
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 public class CSVParser {
     private static final int NO_CONNECTION = 99999;
+    private static final String SNAPSHOT_SUFFIX = ".graph";
 
     public static Graph parseCSV(String filename) throws IOException {
         Graph graph = new Graph();
@@ -56,4 +59,60 @@ public class CSVParser {
         reader.close();
         return graph;
     }
+
+    /**
+     * Loads the CSV through a binary snapshot kept next to it as
+     * "<filename>.graph". The snapshot records the length and modification time
+     * of the CSV it was built from and is only used while both still match and
+     * it is intact; otherwise the CSV is parsed and the snapshot rewritten, so
+     * the CSV stays the source of truth, also when an older copy replaces it.
+     */
+    public static Graph parseCSVWithSnapshot(String filename) throws IOException {
+        File csv = new File(filename);
+        File snapshot = new File(filename + SNAPSHOT_SUFFIX);
+        // taken before parsing, so a CSV changed meanwhile does not match next time
+        long csvLength = csv.length();
+        long csvModified = csv.lastModified();
+        if (snapshot.exists()) {
+            try {
+                return Graph.loadSnapshot(snapshot.getPath(), csvLength, csvModified);
+            } catch (IOException e) {
+                // damaged, from another version or from another CSV: rebuild it below
+            }
+        }
+        Graph graph = new MappedCSVParser().parse(filename);
+        try {
+            graph.saveSnapshot(snapshot.getPath(), csvLength, csvModified);
+        } catch (IOException e) {
+            // a read-only data directory only costs the next start its speed
+            snapshot.delete();
+        }
+        return graph;
+    }
+
+    // reads "alias,city" lines and registers each alias on the graph
+    public static int parseAliases(Graph graph, String filename) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8));
+        int added = 0;
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            
+            String[] values = line.split(",");
+            if (values.length < 2) {
+                continue;
+            }
+            
+            int cityIndex = graph.getCityIndex(values[1].trim());
+            if (cityIndex != -1 && graph.addAlias(values[0].trim(), cityIndex)) {
+                added++;
+            }
+        }
+        
+        reader.close();
+        return added;
+    }
 }
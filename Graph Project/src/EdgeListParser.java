@@ -0,0 +1,335 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Streaming loader for sparse graphs, as an alternative to the dense matrix
+ * that CSVParser reads. Two formats are supported:
+ *
+ * - Edge lists with one "from,to,weight" line per edge. Cities are created by
+ *   name the first time they appear. Blank lines and lines starting with '#'
+ *   are skipped, and so is a first line whose weight is not a number (a
+ *   header). Other malformed lines are counted and skipped, like unreadable
+ *   cells in CSVParser.
+ * - DIMACS shortest path files (.gr). The "p sp n m" line creates n anonymous
+ *   cities, and each "a u v w" line adds an arc between 1-based node numbers.
+ *   Structural errors throw an IOException with the line number.
+ *
+ * The input is read through a fixed buffer one line at a time, so memory holds
+ * only the graph and never the file. A weight of 99999 is the project's
+ * no-connection marker and is dropped by Graph.addEdge, like zero or negative
+ * weights. Such edges are reported by getSkippedEdges.
+ */
+public class EdgeListParser {
+    private static final int NO_CONNECTION = 99999;
+    // what parseNumber returns for text that is not an integer
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // bytes between two progress reports
+    private static final long PROGRESS_INTERVAL = 1 << 24;
+
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long edgesAdded);
+    }
+
+    private ProgressListener progressListener;
+    private long bytesRead;
+    private long edgesAdded;
+    private long skippedLines;
+    private long skippedEdges;
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // picks the format by extension: DIMACS for .gr, an edge list otherwise
+    public Graph parse(String filename) throws IOException {
+        if (filename.toLowerCase(Locale.ROOT).endsWith(".gr")) {
+            return parseDimacs(filename);
+        }
+        return parseEdgeList(filename);
+    }
+
+    public Graph parseEdgeList(String filename) throws IOException {
+        try (InputStream in = new FileInputStream(filename)) {
+            return parseEdgeList(in);
+        }
+    }
+
+    public Graph parseDimacs(String filename) throws IOException {
+        try (InputStream in = new FileInputStream(filename)) {
+            return parseDimacs(in);
+        }
+    }
+
+    public Graph parseEdgeList(InputStream in) throws IOException {
+        reset();
+        Graph graph = new Graph();
+        LineReader reader = new LineReader(in);
+        boolean firstRecord = true;
+
+        while (reader.nextLine()) {
+            int start = reader.skipSpaces(0);
+            if (start == reader.length || reader.line[start] == '#') {
+                continue;
+            }
+            int firstComma = reader.indexOf(',', start);
+            int secondComma = firstComma == -1 ? -1 : reader.indexOf(',', firstComma + 1);
+            long weight = secondComma == -1 ? NOT_A_NUMBER : reader.parseNumber(secondComma + 1, reader.length);
+            boolean header = firstRecord && weight == NOT_A_NUMBER;
+            firstRecord = false;
+            if (header) {
+                continue;
+            }
+            if (weight == NOT_A_NUMBER) {
+                skippedLines++;
+                continue;
+            }
+
+            int from = cityFor(graph, reader.text(start, firstComma));
+            int to = cityFor(graph, reader.text(firstComma + 1, secondComma));
+            if (from == -1 || to == -1) {
+                skippedLines++;
+                continue;
+            }
+            addEdge(graph, from, to, weight);
+            reportProgress(reader);
+        }
+        finish(reader);
+        return graph;
+    }
+
+    public Graph parseDimacs(InputStream in) throws IOException {
+        reset();
+        Graph graph = new Graph();
+        LineReader reader = new LineReader(in);
+        int numNodes = -1;
+
+        while (reader.nextLine()) {
+            int position = reader.skipSpaces(0);
+            if (position == reader.length) {
+                continue;
+            }
+            byte kind = reader.line[position];
+            if (kind == 'c') {
+                continue;
+            }
+            if (kind == 'p') {
+                if (numNodes != -1) {
+                    throw new IOException("Line " + reader.lineNumber + ": second problem line");
+                }
+                // p sp <nodes> <arcs>
+                position = reader.skipToken(position);
+                position = reader.skipToken(reader.skipSpaces(position));
+                int nodesStart = reader.skipSpaces(position);
+                int nodesEnd = reader.skipToken(nodesStart);
+                int arcsStart = reader.skipSpaces(nodesEnd);
+                long nodes = reader.parseNumber(nodesStart, nodesEnd);
+                long arcs = reader.parseNumber(arcsStart, reader.skipToken(arcsStart));
+                if (nodes < 0 || arcs < 0) {
+                    throw new IOException("Line " + reader.lineNumber + ": malformed problem line");
+                }
+                if (nodes > Integer.MAX_VALUE) {
+                    throw new IOException("Line " + reader.lineNumber + ": too many nodes: " + nodes);
+                }
+                numNodes = (int) nodes;
+                graph.addAnonymousCities(numNodes);
+                graph.ensureEdgeCapacity((int) Math.min(arcs, Integer.MAX_VALUE - 8));
+                continue;
+            }
+            if (kind != 'a') {
+                throw new IOException("Line " + reader.lineNumber + ": unknown line type '" + (char) kind + "'");
+            }
+            if (numNodes == -1) {
+                throw new IOException("Line " + reader.lineNumber + ": arc before the problem line");
+            }
+
+            // a <from> <to> <weight>
+            long[] fields = reader.fields;
+            position = reader.skipToken(position);
+            for (int f = 0; f < 3; f++) {
+                int tokenStart = reader.skipSpaces(position);
+                position = reader.skipToken(tokenStart);
+                fields[f] = reader.parseNumber(tokenStart, position);
+            }
+            if (fields[0] < 1 || fields[0] > numNodes || fields[1] < 1 || fields[1] > numNodes
+                    || fields[2] == NOT_A_NUMBER) {
+                throw new IOException("Line " + reader.lineNumber + ": malformed arc");
+            }
+            addEdge(graph, (int) fields[0] - 1, (int) fields[1] - 1, fields[2]);
+            reportProgress(reader);
+        }
+        finish(reader);
+        return graph;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getEdgesAdded() {
+        return edgesAdded;
+    }
+
+    // lines that were neither edges, comments nor the header
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    // well-formed edges the graph does not accept (weight 0, negative or 99999)
+    public long getSkippedEdges() {
+        return skippedEdges;
+    }
+
+    private void reset() {
+        bytesRead = 0;
+        edgesAdded = 0;
+        skippedLines = 0;
+        skippedEdges = 0;
+    }
+
+    private int cityFor(Graph graph, String name) {
+        String trimmed = name.trim();
+        if (trimmed.isEmpty()) {
+            return -1;
+        }
+        int index = graph.getCityIndex(trimmed);
+        return index != -1 ? index : graph.addCity(trimmed);
+    }
+
+    private void addEdge(Graph graph, int from, int to, long weight) {
+        if (weight <= 0 || weight == NO_CONNECTION || weight > Integer.MAX_VALUE) {
+            skippedEdges++;
+            return;
+        }
+        graph.addEdge(from, to, (int) weight);
+        edgesAdded++;
+    }
+
+    private void reportProgress(LineReader reader) {
+        if (progressListener != null && reader.bytesRead - bytesRead >= PROGRESS_INTERVAL) {
+            bytesRead = reader.bytesRead;
+            progressListener.onProgress(bytesRead, edgesAdded);
+        }
+    }
+
+    private void finish(LineReader reader) {
+        bytesRead = reader.bytesRead;
+        if (progressListener != null) {
+            progressListener.onProgress(bytesRead, edgesAdded);
+        }
+    }
+
+    // hands out the input one line at a time from a fixed read buffer
+    private static class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        byte[] line = new byte[256];
+        int length;
+        long lineNumber;
+        long bytesRead;
+        final long[] fields = new long[3];
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        // loads the next line without its terminator; false at the end of input
+        boolean nextLine() throws IOException {
+            length = 0;
+            boolean any = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (any) {
+                            endLine();
+                        }
+                        return any;
+                    }
+                    bytesRead += limit;
+                }
+                any = true;
+                byte b = buffer[position];
+                position++;
+                if (b == '\n') {
+                    endLine();
+                    return true;
+                }
+                if (length == line.length) {
+                    byte[] bigger = new byte[line.length * 2];
+                    System.arraycopy(line, 0, bigger, 0, length);
+                    line = bigger;
+                }
+                line[length] = b;
+                length++;
+            }
+        }
+
+        private void endLine() {
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            lineNumber++;
+        }
+
+        int skipSpaces(int from) {
+            while (from < length && (line[from] == ' ' || line[from] == '\t')) {
+                from++;
+            }
+            return from;
+        }
+
+        int skipToken(int from) {
+            while (from < length && line[from] != ' ' && line[from] != '\t') {
+                from++;
+            }
+            return from;
+        }
+
+        int indexOf(char c, int from) {
+            for (int i = from; i < length; i++) {
+                if (line[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String text(int from, int to) {
+            return new String(line, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        // integer with an optional sign in line[from .. to), spaces around it allowed; NOT_A_NUMBER otherwise
+        long parseNumber(int from, int to) {
+            while (from < to && line[from] <= ' ') {
+                from++;
+            }
+            while (to > from && line[to - 1] <= ' ') {
+                to--;
+            }
+            boolean negative = from < to && line[from] == '-';
+            if (from < to && (line[from] == '-' || line[from] == '+')) {
+                from++;
+            }
+            if (from == to || to - from > 18) {
+                return NOT_A_NUMBER;
+            }
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return NOT_A_NUMBER;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Seeded generator of synthetic road networks, for testing and benchmarking
+ * at sizes far beyond Data/cities.csv. Three topologies:
+ *
+ * - GEOMETRIC: cities scattered in the unit square and numbered in spatial
+ *   order, like real road data. Consecutive cities are joined by a road, so
+ *   the graph is connected. The remaining degree comes from two-way roads to
+ *   every city within a radius. Weights follow the Euclidean distance.
+ * - GRID: a Manhattan lattice with four-way crossings, and a base weight
+ *   perturbed per road by up to perturbation percent.
+ * - SCALE_FREE: hub and spoke. Every city links to an earlier city chosen with
+ *   a strong bias towards the first ones, which keeps the graph connected and
+ *   makes the early cities hubs. It then adds more such links, to any city,
+ *   up to the average degree.
+ *
+ * Every random choice is a hash of the seed and the city or road it belongs
+ * to, not a draw from a shared sequence. So the CSR arrays are filled in
+ * parallel and the same seed gives the same graph on any number of threads.
+ * Cities are anonymous (see Graph.addAnonymousCities) and are named 1 .. n.
+ *
+ * Command line:
+ *   java GraphGenerator <GEOMETRIC|GRID|SCALE_FREE> <cities> <degree> <seed> <output>
+ * The output format follows the extension: .gr DIMACS, .graph binary
+ * snapshot, .csv distance matrix, anything else a from,to,weight edge list.
+ */
+public class GraphGenerator {
+    public enum Topology {
+        GEOMETRIC,
+        GRID,
+        SCALE_FREE
+    }
+
+    private static final int GRAIN = 1 << 14;
+    private static final int GRID_BASE_WEIGHT = 100;
+    // geometric weights: the side of the unit square measures this much
+    private static final double GEOMETRIC_SCALE = 1000000.0;
+    private static final int MAX_HUB_WEIGHT = 1000;
+    private static final int NO_CONNECTION = 99999;
+    // largest int array the JVM reliably allocates
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final long seed;
+    private int perturbation = 30;
+
+    public GraphGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // grid weights vary by up to this many percent of the base weight
+    public void setPerturbation(int percent) {
+        if (percent < 0 || percent > 99) {
+            throw new IllegalArgumentException("Perturbation must be 0-99 percent");
+        }
+        this.perturbation = percent;
+    }
+
+    /**
+     * Builds a graph of numCities cities. averageDegree is the intended
+     * number of outgoing edges per city. A grid always has four per inner
+     * city and ignores it.
+     */
+    public Graph generate(Topology topology, int numCities, int averageDegree) {
+        if (numCities < 1) {
+            throw new IllegalArgumentException("At least one city is required");
+        }
+        switch (topology) {
+            case GRID:
+                return grid(numCities);
+            case SCALE_FREE:
+                return scaleFree(numCities, Math.max(2, averageDegree));
+            default:
+                return geometric(numCities, Math.max(1, averageDegree));
+        }
+    }
+
+    private Graph grid(int numCities) {
+        int width = (int) Math.ceil(Math.sqrt(numCities));
+        int[] offsets = new int[numCities + 1];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                offsets[u + 1] = gridNeighbors(u, width, numCities, null, null, 0);
+            }
+        });
+        prefixSum(offsets);
+        int[] targets = new int[offsets[numCities]];
+        int[] weights = new int[offsets[numCities]];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                gridNeighbors(u, width, numCities, targets, weights, offsets[u]);
+            }
+        });
+        return Graph.fromCompressedRows(offsets, targets, weights);
+    }
+
+    // counts the lattice neighbours of u, and writes them when targets is given
+    private int gridNeighbors(int u, int width, int numCities, int[] targets, int[] weights, int position) {
+        int x = u % width;
+        int count = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            int v;
+            if (direction == 0) {
+                v = x > 0 ? u - 1 : -1;
+            } else if (direction == 1) {
+                v = x < width - 1 ? u + 1 : -1;
+            } else {
+                v = direction == 2 ? u - width : u + width;
+            }
+            if (v < 0 || v >= numCities) {
+                continue;
+            }
+            if (targets != null) {
+                long hash = hash(Math.min(u, v), Math.max(u, v));
+                int spread = GRID_BASE_WEIGHT * perturbation / 100;
+                targets[position + count] = v;
+                weights[position + count] = GRID_BASE_WEIGHT - spread + (int) Long.remainderUnsigned(hash, 2L * spread + 1);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private Graph geometric(int numCities, int averageDegree) {
+        // expected neighbours within radius r: n * pi * r^2. Most chain neighbours
+        // fall inside the radius anyway, so the chain adds about one road per city
+        double radius = Math.min(1.0, Math.sqrt(Math.max(1, averageDegree - 1) / (Math.PI * numCities)));
+        int cellsPerSide = Math.max(1, (int) (1.0 / radius));
+        int numCells = cellsPerSide * cellsPerSide;
+
+        // scatter the points, then number them cell by cell (counting sort)
+        double[] rawX = new double[numCities];
+        double[] rawY = new double[numCities];
+        int[] rawCell = new int[numCities];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                rawX[i] = unit(hash(i, 0));
+                rawY[i] = unit(hash(i, 1));
+                int cx = Math.min(cellsPerSide - 1, (int) (rawX[i] * cellsPerSide));
+                int cy = Math.min(cellsPerSide - 1, (int) (rawY[i] * cellsPerSide));
+                // serpentine rows keep consecutive cells adjacent
+                rawCell[i] = cy * cellsPerSide + (cy % 2 == 0 ? cx : cellsPerSide - 1 - cx);
+            }
+        });
+        int[] cellStart = new int[numCells + 1];
+        for (int i = 0; i < numCities; i++) {
+            cellStart[rawCell[i] + 1]++;
+        }
+        prefixSum(cellStart);
+        int[] next = cellStart.clone();
+        double[] xs = new double[numCities];
+        double[] ys = new double[numCities];
+        for (int i = 0; i < numCities; i++) {
+            int id = next[rawCell[i]]++;
+            xs[id] = rawX[i];
+            ys[id] = rawY[i];
+        }
+
+        int[] offsets = new int[numCities + 1];
+        GeometricScan scan = new GeometricScan(xs, ys, cellStart, cellsPerSide, radius);
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                offsets[u + 1] = scan.neighbors(u, null, null, 0);
+            }
+        });
+        prefixSum(offsets);
+        int[] targets = new int[offsets[numCities]];
+        int[] weights = new int[offsets[numCities]];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                scan.neighbors(u, targets, weights, offsets[u]);
+            }
+        });
+        return Graph.fromCompressedRows(offsets, targets, weights);
+    }
+
+    // neighbour search over the cells around a point
+    private static class GeometricScan {
+        private final double[] xs;
+        private final double[] ys;
+        private final int[] cellStart;
+        private final int cellsPerSide;
+        private final double radius;
+
+        GeometricScan(double[] xs, double[] ys, int[] cellStart, int cellsPerSide, double radius) {
+            this.xs = xs;
+            this.ys = ys;
+            this.cellStart = cellStart;
+            this.cellsPerSide = cellsPerSide;
+            this.radius = radius;
+        }
+
+        int neighbors(int u, int[] targets, int[] weights, int position) {
+            int count = 0;
+            // the chain through consecutive cities
+            for (int v = u - 1; v <= u + 1; v += 2) {
+                if (v >= 0 && v < xs.length) {
+                    if (targets != null) {
+                        targets[position + count] = v;
+                        weights[position + count] = weight(u, v);
+                    }
+                    count++;
+                }
+            }
+            int cx = Math.min(cellsPerSide - 1, (int) (xs[u] * cellsPerSide));
+            int cy = Math.min(cellsPerSide - 1, (int) (ys[u] * cellsPerSide));
+            double radiusSquared = radius * radius;
+            for (int y = Math.max(0, cy - 1); y <= Math.min(cellsPerSide - 1, cy + 1); y++) {
+                for (int x = Math.max(0, cx - 1); x <= Math.min(cellsPerSide - 1, cx + 1); x++) {
+                    int cell = y * cellsPerSide + (y % 2 == 0 ? x : cellsPerSide - 1 - x);
+                    for (int v = cellStart[cell]; v < cellStart[cell + 1]; v++) {
+                        double dx = xs[u] - xs[v];
+                        double dy = ys[u] - ys[v];
+                        if (v >= u - 1 && v <= u + 1 || dx * dx + dy * dy > radiusSquared) {
+                            continue;
+                        }
+                        if (targets != null) {
+                            targets[position + count] = v;
+                            weights[position + count] = weight(u, v);
+                        }
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private int weight(int u, int v) {
+            double dx = xs[u] - xs[v];
+            double dy = ys[u] - ys[v];
+            int weight = 1 + (int) (Math.sqrt(dx * dx + dy * dy) * GEOMETRIC_SCALE);
+            return weight == NO_CONNECTION ? weight + 1 : weight;
+        }
+    }
+
+    private Graph scaleFree(int numCities, int averageDegree) {
+        // every pick is one two-way road, which adds two outgoing edges
+        int picksPerCity = Math.max(1, averageDegree / 2);
+        // each pick becomes up to two edges, so the edge arrays need twice as many slots
+        long numPicks = (long) numCities * picksPerCity;
+        if (2 * numPicks > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Too many edges for " + numCities + " cities of degree "
+                    + averageDegree);
+        }
+        int[] picks = new int[(int) numPicks];
+        int[] pickWeights = new int[picks.length];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                for (int k = 0; k < picksPerCity; k++) {
+                    long hash = hash(u, k);
+                    double r = unit(hash);
+                    // density of the pick falls off as 1 / sqrt(index): the first cities become hubs
+                    int bound = k == 0 ? u : numCities;
+                    int v = (int) (bound * r * r);
+                    int slot = u * picksPerCity + k;
+                    picks[slot] = v == u || bound == 0 ? -1 : v;
+                    pickWeights[slot] = 1 + (int) ((hash >>> 40) % MAX_HUB_WEIGHT);
+                }
+            }
+        });
+
+        // own picks first, then the roads other cities picked towards u
+        int[] offsets = new int[numCities + 1];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                int count = 0;
+                for (int k = 0; k < picksPerCity; k++) {
+                    if (picks[u * picksPerCity + k] != -1) {
+                        count++;
+                    }
+                }
+                offsets[u + 1] = count;
+            }
+        });
+        for (int v : picks) {
+            if (v != -1) {
+                offsets[v + 1]++;
+            }
+        }
+        prefixSum(offsets);
+
+        int[] targets = new int[offsets[numCities]];
+        int[] weights = new int[offsets[numCities]];
+        int[] fill = new int[numCities];
+        ParallelRange.forEach(0, numCities, GRAIN, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                int position = offsets[u];
+                for (int k = 0; k < picksPerCity; k++) {
+                    int slot = u * picksPerCity + k;
+                    if (picks[slot] != -1) {
+                        targets[position] = picks[slot];
+                        weights[position] = pickWeights[slot];
+                        position++;
+                    }
+                }
+                fill[u] = position;
+            }
+        });
+        for (int slot = 0; slot < picks.length; slot++) {
+            int v = picks[slot];
+            if (v != -1) {
+                int position = fill[v]++;
+                targets[position] = slot / picksPerCity;
+                weights[position] = pickWeights[slot];
+            }
+        }
+        return Graph.fromCompressedRows(offsets, targets, weights);
+    }
+
+    private static void prefixSum(int[] values) {
+        long sum = 0;
+        for (int i = 1; i < values.length; i++) {
+            sum += values[i];
+            if (sum > MAX_ARRAY_LENGTH) {
+                throw new IllegalArgumentException("Too many edges: more than " + MAX_ARRAY_LENGTH);
+            }
+            values[i] = (int) sum;
+        }
+    }
+
+    // SplitMix64 finalizer over the seed and two keys
+    private long hash(long a, long b) {
+        long z = seed + a * 0x9E3779B97F4A7C15L + b * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // uniform in [0, 1)
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    // from,to,weight lines as read by EdgeListParser
+    public static void writeEdgeList(Graph graph, String filename) throws IOException {
+        graph.freeze();
+        try (Writer writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            writer.write("from,to,weight\n");
+            for (int u = 0; u < graph.getNumCities(); u++) {
+                String from = graph.getCityName(u);
+                for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                    writer.write(from);
+                    writer.write(',');
+                    writer.write(graph.getCityName(graph.getEdgeTarget(e)));
+                    writer.write(',');
+                    writer.write(Integer.toString(graph.getEdgeWeight(e)));
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    // DIMACS shortest path format with 1-based node numbers
+    public static void writeDimacs(Graph graph, String filename) throws IOException {
+        graph.freeze();
+        try (Writer writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            writer.write("c generated by GraphGenerator\n");
+            writer.write("p sp " + graph.getNumCities() + " " + graph.getNumEdges() + "\n");
+            for (int u = 0; u < graph.getNumCities(); u++) {
+                String from = Integer.toString(u + 1);
+                for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                    writer.write("a ");
+                    writer.write(from);
+                    writer.write(' ');
+                    writer.write(Integer.toString(graph.getEdgeTarget(e) + 1));
+                    writer.write(' ');
+                    writer.write(Integer.toString(graph.getEdgeWeight(e)));
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Distance matrix in the Data/cities.csv layout, 99999 for no road. Of
+     * parallel roads the shortest is kept. The file grows with the square of
+     * the city count.
+     */
+    public static void writeMatrix(Graph graph, String filename) throws IOException {
+        graph.freeze();
+        int numCities = graph.getNumCities();
+        int[] row = new int[numCities];
+        try (Writer writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            for (int i = 0; i < numCities; i++) {
+                writer.write(',');
+                writer.write(graph.getCityName(i));
+            }
+            writer.write('\n');
+            for (int u = 0; u < numCities; u++) {
+                for (int v = 0; v < numCities; v++) {
+                    row[v] = NO_CONNECTION;
+                }
+                row[u] = 0;
+                for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                    int v = graph.getEdgeTarget(e);
+                    if (v != u) {
+                        row[v] = Math.min(row[v], graph.getEdgeWeight(e));
+                    }
+                }
+                writer.write(graph.getCityName(u));
+                for (int v = 0; v < numCities; v++) {
+                    writer.write(',');
+                    writer.write(Integer.toString(row[v]));
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: java GraphGenerator <GEOMETRIC|GRID|SCALE_FREE> <cities> <degree> <seed> <output>");
+            System.exit(1);
+        }
+        Topology topology = Topology.valueOf(args[0].toUpperCase(Locale.ROOT));
+        int numCities = Integer.parseInt(args[1]);
+        int degree = Integer.parseInt(args[2]);
+        GraphGenerator generator = new GraphGenerator(Long.parseLong(args[3]));
+        String output = args[4];
+
+        long start = System.nanoTime();
+        Graph graph = generator.generate(topology, numCities, degree);
+        long generated = System.nanoTime();
+        String lower = output.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gr")) {
+            writeDimacs(graph, output);
+        } else if (lower.endsWith(".graph")) {
+            graph.saveSnapshot(output);
+        } else if (lower.endsWith(".csv")) {
+            writeMatrix(graph, output);
+        } else {
+            writeEdgeList(graph, output);
+        }
+        long written = System.nanoTime();
+        System.out.printf("%s: %d cities, %d edges, generated in %d ms, written in %d ms%n", topology,
+                graph.getNumCities(), graph.getNumEdges(), (generated - start) / 1000000,
+                (written - generated) / 1000000);
+    }
+}
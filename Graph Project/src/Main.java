@@ -1,3 +1,4 @@
+import java.io.File;
 import java.io.IOException;
 import java.util.Scanner;
 
@@ -8,13 +9,22 @@ public class InteractivePathFinder {
     private DFSShortestAlgorithm dfsShortest;
     private DijkstraAlgorithm dijkstra;
     private Scanner scanner;
+    private static final int MAX_LISTED_CITIES = 60;
+    private static final int MAX_SUGGESTIONS = 10;
 
     public InteractivePathFinder(String csvFile) throws IOException {
         System.out.println("Loading...");
-        graph = CSVParser.parseCSV(csvFile);
+        // writes <csvFile>.graph into the data directory on the first start and after the CSV changes
+        graph = CSVParser.parseCSVWithSnapshot(csvFile);
+        // optional alias file next to the data set
+        File aliasFile = new File(new File(csvFile).getAbsoluteFile().getParentFile(), "aliases.csv");
+        if (aliasFile.exists()) {
+            CSVParser.parseAliases(graph, aliasFile.getPath());
+        }
         dfs = new DFSAlgorithm(graph);
         dfsShortest = new DFSShortestAlgorithm(graph);
         dijkstra = new DijkstraAlgorithm(graph);
+        SearchStatistics.setAllocationTracking(true);
         scanner = new Scanner(System.in);
     }
 
@@ -40,8 +50,14 @@ public class InteractivePathFinder {
         System.out.println("========================================");
         System.out.println();
         
-        List<String> cities = graph.getCities();
-        System.out.println("  Cities:");
+        DynamicArray<String> cities = graph.getCities();
+        if (cities.size() > MAX_LISTED_CITIES) {
+            System.out.println("  " + cities.size() + " cities loaded.");
+            System.out.println("  Type a name or the first letters to search.");
+            System.out.println();
+            return;
+        }
+        System.out.println("  Cities (enter a number or type a name):");
         System.out.println();
         
         for (int i = 0; i < cities.size(); i++) {
@@ -61,24 +77,60 @@ public class InteractivePathFinder {
     }
 
     private int selectCity(String prompt) {
-        List<String> cities = graph.getCities();
+        DynamicArray<String> cities = graph.getCities();
         int choice;
         
         while (true) {
             System.out.print("  " + prompt + ": ");
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                System.out.println("  Invalid input!");
+                continue;
+            }
             try {
-                choice = Integer.parseInt(scanner.nextLine().trim());
+                choice = Integer.parseInt(input);
                 if (choice >= 1 && choice <= cities.size()) {
                     return choice - 1;
                 } else {
                     System.out.println("  Invalid! Enter 1-" + cities.size());
                 }
             } catch (NumberFormatException e) {
-                System.out.println("  Invalid input!");
+                int index = findCityByName(input);
+                if (index != -1) {
+                    System.out.println("  Selected: " + graph.getCityName(index));
+                    return index;
+                }
             }
         }
     }
 
+    // exact (case and diacritic insensitive) match first, then autocomplete
+    private int findCityByName(String input) {
+        int index = graph.getCityIndex(input);
+        if (index != -1) {
+            return index;
+        }
+        
+        List<String> matches = graph.findCitiesByPrefix(input, MAX_SUGGESTIONS);
+        if (matches.isEmpty()) {
+            System.out.println("  Unknown city: " + input);
+            return -1;
+        }
+        if (matches.size() == 1) {
+            return graph.getCityIndex(matches.get(0));
+        }
+        
+        System.out.print("  Did you mean: ");
+        for (int i = 0; i < matches.size(); i++) {
+            System.out.print(matches.get(i));
+            if (i < matches.size() - 1) {
+                System.out.print(", ");
+            }
+        }
+        System.out.println();
+        return -1;
+    }
+
     private void displayResult(PathResult result, String algorithmName, String source, String destination) {
         clearScreen();
         System.out.println("========================================");
@@ -98,6 +150,7 @@ public class InteractivePathFinder {
             System.out.println("  Distance: " + result.getTotalDistance() + " km");
             double timeMs = result.getExecutionTime() / 1000000.0;
             System.out.println("  Time:      " + timeMs + " ms");
+            printWork(result);
             System.out.println("  Stops:     " + (result.getPath().size() - 1));
         }
         
@@ -106,6 +159,12 @@ public class InteractivePathFinder {
         scanner.nextLine();
     }
 
+    private void printWork(PathResult result) {
+        if (result.getStatistics() != null) {
+            System.out.println("  Work:     " + result.getStatistics());
+        }
+    }
+
     private void displayComparison(String source, String destination) {
         clearScreen();
         System.out.println("========================================");
@@ -132,6 +191,7 @@ public class InteractivePathFinder {
             System.out.println("  Distance: " + dfsResult.getTotalDistance() + " km");
             double time1 = dfsResult.getExecutionTime() / 1000000.0;
             System.out.println("  Time:     " + time1 + " ms");
+            printWork(dfsResult);
         } else {
             System.out.println("  No path found");
         }
@@ -143,6 +203,7 @@ public class InteractivePathFinder {
             System.out.println("  Distance: " + dfsShortestResult.getTotalDistance() + " km");
             double time2 = dfsShortestResult.getExecutionTime() / 1000000.0;
             System.out.println("  Time:     " + time2 + " ms");
+            printWork(dfsShortestResult);
         } else {
             System.out.println("  No path found");
         }
@@ -154,6 +215,7 @@ public class InteractivePathFinder {
             System.out.println("  Distance: " + dijkstraResult.getTotalDistance() + " km");
             double time3 = dijkstraResult.getExecutionTime() / 1000000.0;
             System.out.println("  Time:     " + time3 + " ms");
+            printWork(dijkstraResult);
         } else {
             System.out.println("  No path found");
         }
@@ -204,7 +266,7 @@ public class InteractivePathFinder {
                 int sourceIndex = selectCity("Source city");
                 int destIndex = selectCity("Destination city");
                 
-                List<String> cities = graph.getCities();
+                DynamicArray<String> cities = graph.getCities();
                 String source = cities.get(sourceIndex);
                 String destination = cities.get(destIndex);
                 
@@ -222,7 +284,7 @@ public class InteractivePathFinder {
                     int source1 = selectCity("Source city");
                     int dest1 = selectCity("Destination city");
                     
-                    List<String> cities1 = graph.getCities();
+                    DynamicArray<String> cities1 = graph.getCities();
                     result = dfs.findPath(cities1.get(source1), cities1.get(dest1));
                     displayResult(result, algorithmName, cities1.get(source1), cities1.get(dest1));
                     break;
@@ -233,7 +295,7 @@ public class InteractivePathFinder {
                     int source2 = selectCity("Source city");
                     int dest2 = selectCity("Destination city");
                     
-                    List<String> cities2 = graph.getCities();
+                    DynamicArray<String> cities2 = graph.getCities();
                     result = dfsShortest.findShortestPath(cities2.get(source2), cities2.get(dest2));
                     displayResult(result, algorithmName, cities2.get(source2), cities2.get(dest2));
                     break;
@@ -244,7 +306,7 @@ public class InteractivePathFinder {
                     int source3 = selectCity("Source city");
                     int dest3 = selectCity("Destination city");
                     
-                    List<String> cities3 = graph.getCities();
+                    DynamicArray<String> cities3 = graph.getCities();
                     result = dijkstra.findShortestPath(cities3.get(source3), cities3.get(dest3));
                     displayResult(result, algorithmName, cities3.get(source3), cities3.get(dest3));
                     break;
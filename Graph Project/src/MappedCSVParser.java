@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loader for large distance matrices in the same format as CSVParser.parseCSV,
+ * and with the same result: same cities, same edges, same edge order.
+ *
+ * The file is memory-mapped instead of read through a Reader. Distances are
+ * parsed straight from the bytes, so the only Strings created are the city
+ * names. The body is cut into byte ranges parsed in parallel. A range owns the
+ * rows that start inside it, and a row may run past the end of the range.
+ * The parsed rows are then added to the graph in file order. As in
+ * parseCSV, a row whose name is unknown is skipped, a cell that is not an
+ * integer is ignored, and the first blank line ends the matrix.
+ *
+ * One mapping covers at most 2 GB, so every range maps its own window and files
+ * of any size work as long as a single row fits in a window.
+ */
+public class MappedCSVParser {
+    private static final int NO_CONNECTION = 99999;
+    // smaller bodies are not worth splitting
+    private static final long MIN_RANGE_BYTES = 1 << 20;
+    private static final int RANGES_PER_THREAD = 4;
+
+    private long bytesRead;
+    private long elapsedNanos;
+
+    public Graph parse(String filename) throws IOException {
+        long startTime = System.nanoTime();
+        Graph graph = new Graph();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            bytesRead = size;
+            if (size == 0) {
+                elapsedNanos = System.nanoTime() - startTime;
+                return graph;
+            }
+
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            int headerEnd = lineEnd(head, 0, head.limit());
+            int numCities = parseHeader(graph, head, headerEnd);
+            long bodyStart = headerEnd + 1L;
+            if (bodyStart >= size) {
+                elapsedNanos = System.nanoTime() - startTime;
+                return graph;
+            }
+
+            long bodySize = size - bodyStart;
+            int parts = (int) Math.max(1, Math.min(
+                    (long) ForkJoinPool.getCommonPoolParallelism() * RANGES_PER_THREAD, bodySize / MIN_RANGE_BYTES));
+            RangeResult[] results = new RangeResult[parts];
+            try {
+                ParallelRange.forEach(0, parts, 1, (from, to) -> {
+                    for (int p = from; p < to; p++) {
+                        long rangeStart = bodyStart + bodySize * p / parts;
+                        long rangeEnd = bodyStart + bodySize * (p + 1) / parts;
+                        results[p] = parseRange(channel, graph, numCities, bodyStart, rangeStart, rangeEnd, size);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            for (RangeResult result : results) {
+                result.addTo(graph);
+                if (result.sawBlankLine) {
+                    break;
+                }
+            }
+        }
+
+        elapsedNanos = System.nanoTime() - startTime;
+        return graph;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // decimal megabytes per second of the last parse
+    public double getThroughputMBPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0.0;
+        }
+        return (bytesRead / 1000000.0) / (elapsedNanos / 1000000000.0);
+    }
+
+    // same splitting as parseCSV: header.split(",") drops trailing empty names
+    private int parseHeader(Graph graph, MappedByteBuffer buffer, int headerEnd) {
+        int end = headerEnd;
+        if (end > 0 && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end];
+        buffer.get(0, bytes, 0, end);
+        String[] headers = new String(bytes, StandardCharsets.UTF_8).split(",");
+        for (int i = 1; i < headers.length; i++) {
+            graph.addCity(headers[i].trim());
+        }
+        return Math.max(0, headers.length - 1);
+    }
+
+    private RangeResult parseRange(FileChannel channel, Graph graph, int numCities, long bodyStart,
+                                   long rangeStart, long rangeEnd, long size) {
+        RangeResult result = new RangeResult();
+        // one byte earlier, so the range can tell whether it starts on a row boundary
+        long windowStart = rangeStart == bodyStart ? rangeStart : rangeStart - 1;
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(size - windowStart, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = buffer.limit();
+        int ownedEnd = (int) Math.min(limit, rangeEnd - windowStart);
+
+        int position = 0;
+        if (rangeStart != bodyStart) {
+            // the row in progress at the range start belongs to the previous range
+            position = lineEnd(buffer, 0, limit) + 1;
+        }
+
+        while (position < ownedEnd) {
+            int end = lineEnd(buffer, position, limit);
+            if (isBlank(buffer, position, end)) {
+                result.sawBlankLine = true;
+                break;
+            }
+            parseRow(buffer, position, end, graph, numCities, result);
+            position = end + 1;
+        }
+        return result;
+    }
+
+    private void parseRow(MappedByteBuffer buffer, int start, int end, Graph graph, int numCities,
+                          RangeResult result) {
+        int cellEnd = start;
+        while (cellEnd < end && buffer.get(cellEnd) != ',') {
+            cellEnd++;
+        }
+        int fromIndex = graph.getCityIndex(decodeTrimmed(buffer, start, cellEnd));
+        if (fromIndex == -1) {
+            return;
+        }
+
+        int edgesBefore = result.targets.size();
+        int column = 0;
+        int position = cellEnd + 1;
+        while (position <= end && column < numCities) {
+            int cellStart = position;
+            // fast path: a cell of plain digits is parsed in the same pass that finds its end
+            long distance = 0;
+            int digits = 0;
+            byte b = 0;
+            while (position < end && (b = buffer.get(position)) >= '0' && b <= '9' && digits < 10) {
+                distance = distance * 10 + (b - '0');
+                digits++;
+                position++;
+            }
+            if (digits == 0 || (position < end && b != ',') || distance > Integer.MAX_VALUE) {
+                while (position < end && buffer.get(position) != ',') {
+                    position++;
+                }
+                distance = parseInt(buffer, cellStart, position);
+            }
+            if (distance != NO_CONNECTION && distance > 0 && fromIndex != column) {
+                result.targets.add(column);
+                result.weights.add((int) distance);
+            }
+            column++;
+            position++;
+        }
+        result.rowFrom.add(fromIndex);
+        result.rowEdges.add(result.targets.size() - edgesBefore);
+    }
+
+    /**
+     * Integer.parseInt on the trimmed cell, without a String. Returns -1 where
+     * parseInt would throw, which the caller then ignores like parseCSV does.
+     */
+    private static long parseInt(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return -1;
+        }
+        boolean negative = false;
+        byte first = buffer.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+            if (start == end) {
+                return -1;
+            }
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return -1;
+            }
+        }
+        if (negative) {
+            // negative distances are never edges
+            return -1;
+        }
+        return value > Integer.MAX_VALUE ? -1 : value;
+    }
+
+    private static String decodeTrimmed(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // index of the '\n' ending the line at start, or limit for the last line
+    private static int lineEnd(MappedByteBuffer buffer, int start, int limit) {
+        int position = start;
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    // what String.trim().isEmpty() says about the line
+    private static boolean isBlank(MappedByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // rows parsed from one byte range, in file order
+    private static class RangeResult {
+        IntList rowFrom = new IntList();
+        IntList rowEdges = new IntList();
+        IntList targets = new IntList();
+        IntList weights = new IntList();
+        boolean sawBlankLine;
+
+        void addTo(Graph graph) {
+            int[] targetArray = targets.toArray();
+            int[] weightArray = weights.toArray();
+            int offset = 0;
+            for (int r = 0; r < rowFrom.size(); r++) {
+                int count = rowEdges.get(r);
+                graph.addEdges(rowFrom.get(r), targetArray, weightArray, offset, count);
+                offset += count;
+            }
+        }
+    }
+}
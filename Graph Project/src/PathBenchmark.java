@@ -0,0 +1,488 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark harness for the path engines and the CSV loader. The
+ * PathResult.executionTime of a single call is mostly JIT and GC noise, so
+ * every benchmark here is measured the way JMH measures it:
+ *
+ * - each combination of benchmark and parameters runs in fresh JVM forks, so
+ *   profiles collected for one engine do not shape the code of the next
+ * - warmup iterations run until the JIT settles and are then discarded
+ * - a measurement iteration repeats the operation for a fixed time and gives
+ *   the average time per operation
+ * - the iterations of all forks are reported as a mean with a 99.9%
+ *   confidence interval (Student's t)
+ * - allocation is read from the thread allocation counter, the same source
+ *   the JMH GC profiler uses, and reported as bytes per operation and MB/s
+ *   together with the number of collections
+ *
+ * Usage:
+ *   java PathBenchmark [-f forks] [-wi warmups] [-i iterations] [-r millis]
+ *                      [-b DFS,DFS-Shortest,Dijkstra,CSV-Load]
+ *                      [-topology GEOMETRIC,GRID,SCALE_FREE]
+ *                      [-size 1000,10000] [-density 4,8] [-distance NEAR,MEDIUM,FAR]
+ *
+ * Graphs come from GraphGenerator with a fixed seed: size cities with about
+ * density outgoing edges per city (a grid always has four). The distance
+ * parameter picks query pairs whose hop count is 10%, 50% or 100% of the
+ * source's eccentricity. CSV-Load parses the graph written as a distance
+ * matrix and ignores the distance parameter.
+ */
+public class PathBenchmark {
+    public enum Benchmark {
+        DFS("DFS"),
+        DFS_SHORTEST("DFS-Shortest"),
+        DIJKSTRA("Dijkstra"),
+        CSV_LOAD("CSV-Load");
+
+        private final String label;
+
+        Benchmark(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static Benchmark fromLabel(String label) {
+            for (Benchmark benchmark : values()) {
+                if (benchmark.label.equalsIgnoreCase(label) || benchmark.name().equalsIgnoreCase(label)) {
+                    return benchmark;
+                }
+            }
+            throw new IllegalArgumentException("Unknown benchmark: " + label);
+        }
+    }
+
+    public enum Distance {
+        NEAR(0.1),
+        MEDIUM(0.5),
+        FAR(1.0);
+
+        private final double fraction;
+
+        Distance(double fraction) {
+            this.fraction = fraction;
+        }
+    }
+
+    private static final long SEED = 42;
+    // query pairs cycled through by the path benchmarks, a power of two
+    private static final int QUERIES = 64;
+    // a distance matrix grows with size squared
+    private static final int MAX_CSV_CITIES = 5000;
+    private static final String CHILD_FLAG = "--child";
+    private static final String RESULT_PREFIX = "ITERATION ";
+    // two-sided 99.9% Student t quantiles for 1 .. 30 degrees of freedom
+    private static final double[] T_999 = {
+        636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    // results are folded in here so the JIT cannot drop the measured work
+    private static volatile long sink;
+
+    private int forks = 2;
+    private int warmups = 5;
+    private int iterations = 5;
+    private int iterationMillis = 1000;
+    private Benchmark[] benchmarks = Benchmark.values();
+    private GraphGenerator.Topology[] topologies = {GraphGenerator.Topology.GEOMETRIC};
+    private int[] sizes = {1000, 10000, 100000};
+    private int[] densities = {4, 8};
+    private Distance[] distances = Distance.values();
+
+    private interface Operation {
+        long run(int invocation) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD_FLAG)) {
+            runChild(args);
+            return;
+        }
+        PathBenchmark harness = new PathBenchmark();
+        harness.parseArguments(args);
+        harness.run();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-f":
+                    forks = Integer.parseInt(value);
+                    break;
+                case "-wi":
+                    warmups = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "-r":
+                    iterationMillis = Integer.parseInt(value);
+                    break;
+                case "-b": {
+                    String[] names = value.split(",");
+                    benchmarks = new Benchmark[names.length];
+                    for (int k = 0; k < names.length; k++) {
+                        benchmarks[k] = Benchmark.fromLabel(names[k].trim());
+                    }
+                    break;
+                }
+                case "-topology": {
+                    String[] names = value.split(",");
+                    topologies = new GraphGenerator.Topology[names.length];
+                    for (int k = 0; k < names.length; k++) {
+                        topologies[k] = GraphGenerator.Topology.valueOf(names[k].trim().toUpperCase(Locale.ROOT));
+                    }
+                    break;
+                }
+                case "-size":
+                    sizes = parseInts(value);
+                    break;
+                case "-density":
+                    densities = parseInts(value);
+                    break;
+                case "-distance": {
+                    String[] names = value.split(",");
+                    distances = new Distance[names.length];
+                    for (int k = 0; k < names.length; k++) {
+                        distances[k] = Distance.valueOf(names[k].trim().toUpperCase(Locale.ROOT));
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+        }
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    private void run() throws Exception {
+        System.out.printf("# forks %d, warmup %d x %d ms, measurement %d x %d ms%n",
+                forks, warmups, iterationMillis, iterations, iterationMillis);
+        System.out.printf("%-14s %-10s %8s %8s %9s %14s %12s %14s %10s %6s%n", "Benchmark", "topology", "size",
+                "density", "distance", "Score(us/op)", "Error(99.9%)", "Alloc(B/op)", "MB/s", "GCs");
+
+        for (Benchmark benchmark : benchmarks) {
+            for (GraphGenerator.Topology topology : topologies) {
+                for (int size : sizes) {
+                    for (int density : densities) {
+                        Distance[] queryDistances = benchmark == Benchmark.CSV_LOAD ? new Distance[]{null} : distances;
+                        for (Distance distance : queryDistances) {
+                            Setup setup = new Setup(benchmark, topology, size, density, distance);
+                            if (benchmark == Benchmark.CSV_LOAD && size > MAX_CSV_CITIES) {
+                                printSkipped(setup, "matrix too large");
+                                continue;
+                            }
+                            report(setup, measure(setup));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // iteration results of all forks, rows of {ns/op, bytes/op, collections}
+    private double[][] measure(Setup setup) throws Exception {
+        String[] childArgs = {
+            CHILD_FLAG, setup.benchmark.name(), setup.topology.name(), String.valueOf(setup.size),
+            String.valueOf(setup.density), setup.distance == null ? "-" : setup.distance.name(),
+            String.valueOf(warmups), String.valueOf(iterations), String.valueOf(iterationMillis)
+        };
+        if (forks == 0) {
+            // in-process run, mostly for debugging the harness itself
+            return runIterations(setup, warmups, iterations, iterationMillis, false);
+        }
+
+        double[][] rows = new double[forks * iterations][];
+        int count = 0;
+        for (int fork = 0; fork < forks; fork++) {
+            Process process = new ProcessBuilder(forkCommand(childArgs))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX) && count < rows.length) {
+                        String[] fields = line.substring(RESULT_PREFIX.length()).split(" ");
+                        rows[count] = new double[]{
+                            Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2])
+                        };
+                        count++;
+                    }
+                }
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Benchmark fork failed with exit code " + exitCode);
+            }
+        }
+        double[][] result = new double[count][];
+        System.arraycopy(rows, 0, result, 0, count);
+        return result;
+    }
+
+    // same java binary, class path and JVM flags as this process
+    private static String[] forkCommand(String[] childArgs) {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        java.util.List<String> jvmArgs = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        String[] command = new String[jvmArgs.size() + 4 + childArgs.length];
+        int n = 0;
+        command[n++] = java;
+        for (String arg : jvmArgs) {
+            command[n++] = arg;
+        }
+        command[n++] = "-cp";
+        command[n++] = System.getProperty("java.class.path");
+        command[n++] = PathBenchmark.class.getName();
+        for (String arg : childArgs) {
+            command[n++] = arg;
+        }
+        return command;
+    }
+
+    private static void runChild(String[] args) throws Exception {
+        Setup setup = new Setup(Benchmark.valueOf(args[1]), GraphGenerator.Topology.valueOf(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                args[5].equals("-") ? null : Distance.valueOf(args[5]));
+        runIterations(setup, Integer.parseInt(args[6]), Integer.parseInt(args[7]), Integer.parseInt(args[8]), true);
+    }
+
+    private static double[][] runIterations(Setup setup, int warmups, int iterations, int iterationMillis,
+                                            boolean print) throws IOException {
+        Graph graph = new GraphGenerator(SEED).generate(setup.topology, setup.size, setup.density);
+        File csvFile = null;
+        Operation operation;
+        if (setup.benchmark == Benchmark.CSV_LOAD) {
+            File file = File.createTempFile("benchmark", ".csv");
+            csvFile = file;
+            GraphGenerator.writeMatrix(graph, file.getPath());
+            operation = invocation -> CSVParser.parseCSV(file.getPath()).getNumEdges();
+        } else {
+            String[][] queries = pickQueries(graph, setup.distance, SEED);
+            operation = pathOperation(setup.benchmark, graph, queries);
+        }
+
+        try {
+            long iterationNanos = iterationMillis * 1000000L;
+            for (int i = 0; i < warmups; i++) {
+                measureIteration(operation, iterationNanos);
+            }
+            double[][] rows = new double[iterations][];
+            for (int i = 0; i < iterations; i++) {
+                rows[i] = measureIteration(operation, iterationNanos);
+                if (print) {
+                    System.out.println(RESULT_PREFIX + rows[i][0] + " " + rows[i][1] + " " + rows[i][2]);
+                }
+            }
+            return rows;
+        } finally {
+            if (csvFile != null) {
+                csvFile.delete();
+            }
+        }
+    }
+
+    private static Operation pathOperation(Benchmark benchmark, Graph graph, String[][] queries) {
+        switch (benchmark) {
+            case DFS: {
+                DFSAlgorithm dfs = new DFSAlgorithm(graph);
+                return invocation -> {
+                    String[] query = queries[invocation & (QUERIES - 1)];
+                    return dfs.findPath(query[0], query[1]).getTotalDistance();
+                };
+            }
+            case DFS_SHORTEST: {
+                DFSShortestAlgorithm dfsShortest = new DFSShortestAlgorithm(graph);
+                return invocation -> {
+                    String[] query = queries[invocation & (QUERIES - 1)];
+                    return dfsShortest.findShortestPath(query[0], query[1]).getTotalDistance();
+                };
+            }
+            default: {
+                DijkstraAlgorithm dijkstra = new DijkstraAlgorithm(graph);
+                return invocation -> {
+                    String[] query = queries[invocation & (QUERIES - 1)];
+                    return dijkstra.findShortestPath(query[0], query[1]).getTotalDistance();
+                };
+            }
+        }
+    }
+
+    // {ns/op, bytes/op, collections} of one timed iteration
+    private static double[] measureIteration(Operation operation, long iterationNanos) throws IOException {
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = allocatedBytes(thread);
+        long collectionsBefore = collectionCount();
+        long start = System.nanoTime();
+        long elapsed;
+        int operations = 0;
+        long result = 0;
+        do {
+            result += operation.run(operations);
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long allocated = allocatedBytes(thread) - allocatedBefore;
+        long collections = collectionCount() - collectionsBefore;
+        sink += result;
+        double bytesPerOperation = allocatedBefore < 0 ? -1 : (double) allocated / operations;
+        return new double[]{(double) elapsed / operations, bytesPerOperation, collections};
+    }
+
+    // -1 when the JVM cannot count allocations per thread
+    private static long allocatedBytes(long thread) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(thread);
+            }
+        }
+        return -1;
+    }
+
+    private static long collectionCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static void report(Setup setup, double[][] rows) {
+        int n = rows.length;
+        if (n == 0) {
+            printSkipped(setup, "no results");
+            return;
+        }
+        double mean = 0;
+        double bytes = 0;
+        double collections = 0;
+        for (double[] row : rows) {
+            mean += row[0];
+            bytes += row[1];
+            collections += row[2];
+        }
+        mean /= n;
+        bytes /= n;
+        double variance = 0;
+        for (double[] row : rows) {
+            variance += (row[0] - mean) * (row[0] - mean);
+        }
+        double error = Double.NaN;
+        if (n > 1) {
+            variance /= n - 1;
+            error = tQuantile(n - 1) * Math.sqrt(variance / n);
+        }
+        double allocationRate = bytes < 0 ? -1 : bytes / mean * 1000.0;
+        System.out.printf("%-14s %-10s %8d %8d %9s %14.3f %12.3f %14.1f %10.1f %6.0f%n",
+                setup.benchmark.getLabel(), setup.topology, setup.size, setup.density,
+                setup.distance == null ? "-" : setup.distance.name(), mean / 1000.0, error / 1000.0, bytes,
+                allocationRate, collections);
+    }
+
+    private static void printSkipped(Setup setup, String reason) {
+        System.out.printf("%-14s %-10s %8d %8d %9s   skipped: %s%n", setup.benchmark.getLabel(), setup.topology,
+                setup.size, setup.density, "-", reason);
+    }
+
+    private static double tQuantile(int degreesOfFreedom) {
+        if (degreesOfFreedom <= T_999.length) {
+            return T_999[degreesOfFreedom - 1];
+        }
+        if (degreesOfFreedom <= 40) {
+            return 3.551;
+        }
+        if (degreesOfFreedom <= 60) {
+            return 3.460;
+        }
+        if (degreesOfFreedom <= 120) {
+            return 3.373;
+        }
+        return 3.291;
+    }
+
+    // pairs whose hop distance is the given fraction of the source's eccentricity
+    static String[][] pickQueries(Graph graph, Distance distance, long seed) {
+        Random random = new Random(seed);
+        int numCities = graph.getNumCities();
+        int[] level = new int[numCities];
+        int[] queue = new int[numCities];
+        String[][] queries = new String[QUERIES][];
+
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(numCities);
+            for (int i = 0; i < numCities; i++) {
+                level[i] = -1;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            level[source] = 0;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                    int v = graph.getEdgeTarget(e);
+                    if (level[v] == -1) {
+                        level[v] = level[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            int eccentricity = level[queue[tail - 1]];
+            int wanted = Math.max(1, (int) Math.round(eccentricity * distance.fraction));
+            // the BFS queue is ordered by level: take a random city from the wanted level
+            int first = 0;
+            while (first < tail && level[queue[first]] < wanted) {
+                first++;
+            }
+            int last = first;
+            while (last < tail && level[queue[last]] == wanted) {
+                last++;
+            }
+            int target = last > first ? queue[first + random.nextInt(last - first)] : source;
+            queries[q] = new String[]{graph.getCityName(source), graph.getCityName(target)};
+        }
+        return queries;
+    }
+
+    // one combination of benchmark and parameters
+    private static class Setup {
+        final Benchmark benchmark;
+        final GraphGenerator.Topology topology;
+        final int size;
+        final int density;
+        final Distance distance;
+
+        Setup(Benchmark benchmark, GraphGenerator.Topology topology, int size, int density, Distance distance) {
+            this.benchmark = benchmark;
+            this.topology = topology;
+            this.size = size;
+            this.density = density;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,581 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Long-running routing service on the JDK's built-in HTTP server. The graph is
+ * loaded once and every request is answered from it in memory.
+ *
+ * Endpoints, all answering JSON:
+ *   GET /route?from=A&to=B[&algo=dijkstra|bidirectional|astar|ch]
+ *   GET or POST /matrix?sources=A,B,C&targets=D,E   (POST takes the same
+ *       form-encoded parameters in the body, for long city lists)
+ *   GET /stats   latency percentiles per endpoint, rejections, in-flight count
+ *
+ * Every request runs on its own virtual thread when the JVM has them
+ * (Executors.newVirtualThreadPerTaskExecutor, JDK 21+). Older JVMs get a
+ * thread per request from a cached pool instead. Searches are CPU bound, so
+ * at most -concurrency requests search at once and the rest wait for a
+ * permit. A request that waits longer than -queue-timeout gets 503, so an
+ * overloaded server sheds load instead of building an unbounded backlog.
+ *
+ * The engines are not thread-safe, so each algorithm keeps a pool of idle
+ * instances; a request borrows one and hands it back. At most -concurrency
+ * instances of an algorithm exist. Landmarks and the contraction hierarchy
+ * are built on the first request that needs them.
+ *
+ * Usage:
+ *   java RoutingServer [-data cities.csv|graph.gr|graph.txt|graph.graph]
+ *                      [-host 127.0.0.1] [-port 8080] [-concurrency cores*2]
+ *                      [-queue-timeout 1000] [-backlog 4096] [-landmarks 16]
+ *                      [-max-matrix 250000]
+ */
+public class RoutingServer {
+    public enum Algorithm {
+        DIJKSTRA("dijkstra"),
+        BIDIRECTIONAL("bidirectional"),
+        ASTAR("astar"),
+        CH("ch");
+
+        private final String label;
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static Algorithm fromLabel(String label) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.label.equalsIgnoreCase(label)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final Graph graph;
+    private final int concurrency;
+    private final long queueTimeoutMillis;
+    private final int landmarkCount;
+    private final long maxMatrixCells;
+
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private HttpServer server;
+
+    private final EnginePool<ShortestPathEngine>[] routeEngines;
+    private final EnginePool<ManyToManyAlgorithm> matrixEngines;
+    private LandmarkIndex landmarks;
+    private ContractionHierarchy hierarchy;
+
+    private final LatencyHistogram routeLatency = new LatencyHistogram();
+    private final LatencyHistogram matrixLatency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RoutingServer(Graph graph, int concurrency, long queueTimeoutMillis, int landmarkCount,
+                         long maxMatrixCells) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.graph = graph;
+        this.concurrency = concurrency;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.landmarkCount = landmarkCount;
+        this.maxMatrixCells = maxMatrixCells;
+        this.permits = new Semaphore(concurrency, true);
+
+        // every lazy structure is built now, so request threads only read the graph
+        graph.enableReverseAdjacency();
+        graph.freeze();
+
+        routeEngines = new EnginePool[Algorithm.values().length];
+        routeEngines[Algorithm.DIJKSTRA.ordinal()] = new EnginePool<>(() -> new DijkstraAlgorithm(graph));
+        routeEngines[Algorithm.BIDIRECTIONAL.ordinal()] =
+                new EnginePool<>(() -> new BidirectionalDijkstraAlgorithm(graph));
+        routeEngines[Algorithm.ASTAR.ordinal()] = new EnginePool<>(() -> new AStarAlgorithm(graph, getLandmarks()));
+        routeEngines[Algorithm.CH.ordinal()] = new EnginePool<>(() -> new CHQueryAlgorithm(getHierarchy()));
+        matrixEngines = new EnginePool<>(() -> new ManyToManyAlgorithm(getHierarchy()));
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "routing-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start(String host, int port, int backlog) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(host), port), backlog);
+        server.createContext("/route", exchange -> handle(exchange, routeLatency, this::route));
+        server.createContext("/matrix", exchange -> handle(exchange, matrixLatency, this::matrix));
+        server.createContext("/stats", exchange -> {
+            try {
+                respond(exchange, 200, stats());
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public LatencyHistogram getRouteLatency() {
+        return routeLatency;
+    }
+
+    public LatencyHistogram getMatrixLatency() {
+        return matrixLatency;
+    }
+
+    private interface Endpoint {
+        Response serve(HttpExchange exchange, String[] parameters) throws IOException;
+    }
+
+    // status code and JSON body of an answer
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    // admission control, timing and error mapping shared by the search endpoints
+    private void handle(HttpExchange exchange, LatencyHistogram latency, Endpoint endpoint) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("POST")) {
+                respond(exchange, 405, error("Method not allowed: " + method));
+                return;
+            }
+            String[] parameters = parseParameters(exchange);
+            boolean admitted;
+            try {
+                admitted = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            }
+            if (!admitted) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error("Server busy"));
+                return;
+            }
+            Response response;
+            try {
+                response = endpoint.serve(exchange, parameters);
+            } catch (IllegalArgumentException e) {
+                response = new Response(400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                failed.increment();
+                response = new Response(500, error(e.toString()));
+            } finally {
+                permits.release();
+            }
+            respond(exchange, response.status, response.body);
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    private Response route(HttpExchange exchange, String[] parameters) {
+        String from = parameter(parameters, "from");
+        String to = parameter(parameters, "to");
+        if (from == null || to == null) {
+            return new Response(400, error("Parameters from and to are required"));
+        }
+        String label = parameter(parameters, "algo");
+        Algorithm algorithm = label == null ? Algorithm.DIJKSTRA : Algorithm.fromLabel(label);
+        if (algorithm == null) {
+            return new Response(400, error("Unknown algorithm: " + label));
+        }
+        int sourceIndex = graph.getCityIndex(from);
+        int destIndex = graph.getCityIndex(to);
+        if (sourceIndex == -1 || destIndex == -1) {
+            return new Response(404, error("Unknown city: " + (sourceIndex == -1 ? from : to)));
+        }
+
+        EnginePool<ShortestPathEngine> pool = routeEngines[algorithm.ordinal()];
+        ShortestPathEngine engine = pool.borrow();
+        PathResult result = engine.findShortestPath(from, to);
+        // an engine that threw is dropped, its arrays may be half updated
+        pool.release(engine);
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"from\":").append(quote(graph.getCityName(sourceIndex)));
+        json.append(",\"to\":").append(quote(graph.getCityName(destIndex)));
+        json.append(",\"algorithm\":").append(quote(algorithm.getLabel()));
+        boolean found = !result.getPath().isEmpty();
+        json.append(",\"found\":").append(found);
+        json.append(",\"distance\":").append(found ? String.valueOf(result.getTotalDistance()) : "null");
+        json.append(",\"path\":[");
+        List<String> path = result.getPath();
+        for (int i = 0; i < path.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(quote(path.get(i)));
+        }
+        json.append("],\"timeMs\":").append(result.getExecutionTime() / 1000000.0);
+        SearchStatistics statistics = result.getStatistics();
+        if (statistics != null) {
+            json.append(",\"statistics\":{\"settled\":").append(statistics.getNodesSettled());
+            json.append(",\"relaxed\":").append(statistics.getEdgesRelaxed());
+            json.append(",\"pushes\":").append(statistics.getHeapPushes());
+            json.append(",\"pops\":").append(statistics.getHeapPops());
+            json.append(",\"stale\":").append(statistics.getStalePops());
+            json.append(",\"peak\":").append(statistics.getPeakFrontier()).append('}');
+        }
+        json.append('}');
+        return new Response(200, json.toString());
+    }
+
+    private Response matrix(HttpExchange exchange, String[] parameters) {
+        String[] sources = splitList(parameter(parameters, "sources"));
+        String[] targets = splitList(parameter(parameters, "targets"));
+        if (sources.length == 0 || targets.length == 0) {
+            return new Response(400, error("Parameters sources and targets are required"));
+        }
+        if ((long) sources.length * targets.length > maxMatrixCells) {
+            return new Response(413, error("Matrix larger than " + maxMatrixCells + " cells"));
+        }
+        int[] sourceIndices = resolve(sources);
+        int[] targetIndices = resolve(targets);
+        for (int i = 0; i < sources.length; i++) {
+            if (sourceIndices[i] == -1) {
+                return new Response(404, error("Unknown city: " + sources[i]));
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            if (targetIndices[i] == -1) {
+                return new Response(404, error("Unknown city: " + targets[i]));
+            }
+        }
+
+        ManyToManyAlgorithm engine = matrixEngines.borrow();
+        int[] table = engine.computeTable(sourceIndices, targetIndices);
+        long executionTime = engine.getLastExecutionTime();
+        matrixEngines.release(engine);
+
+        StringBuilder json = new StringBuilder(64 + 8 * table.length);
+        json.append("{\"sources\":");
+        appendNames(json, sourceIndices);
+        json.append(",\"targets\":");
+        appendNames(json, targetIndices);
+        json.append(",\"distances\":[");
+        for (int i = 0; i < sources.length; i++) {
+            json.append(i > 0 ? ",[" : "[");
+            for (int j = 0; j < targets.length; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                int distance = table[i * targets.length + j];
+                if (distance == INF) {
+                    json.append("null");
+                } else {
+                    json.append(distance);
+                }
+            }
+            json.append(']');
+        }
+        json.append("],\"timeMs\":").append(executionTime / 1000000.0).append('}');
+        return new Response(200, json.toString());
+    }
+
+    private String stats() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"threads\":").append(quote(virtualThreads ? "virtual" : "platform"));
+        json.append(",\"concurrency\":").append(concurrency);
+        json.append(",\"inFlight\":").append(concurrency - permits.availablePermits());
+        json.append(",\"waiting\":").append(permits.getQueueLength());
+        json.append(",\"rejected\":").append(rejected.sum());
+        json.append(",\"failed\":").append(failed.sum());
+        json.append(",\"route\":");
+        appendHistogram(json, routeLatency);
+        json.append(",\"matrix\":");
+        appendHistogram(json, matrixLatency);
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendHistogram(StringBuilder json, LatencyHistogram histogram) {
+        json.append("{\"count\":").append(histogram.getCount());
+        json.append(",\"meanMs\":").append(histogram.getMean() / 1000000.0);
+        json.append(",\"p50Ms\":").append(histogram.getPercentile(0.5) / 1000000.0);
+        json.append(",\"p90Ms\":").append(histogram.getPercentile(0.9) / 1000000.0);
+        json.append(",\"p99Ms\":").append(histogram.getPercentile(0.99) / 1000000.0);
+        json.append(",\"p999Ms\":").append(histogram.getPercentile(0.999) / 1000000.0);
+        json.append(",\"maxMs\":").append(histogram.getMax() / 1000000.0).append('}');
+    }
+
+    private void appendNames(StringBuilder json, int[] indices) {
+        json.append('[');
+        for (int i = 0; i < indices.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(quote(graph.getCityName(indices[i])));
+        }
+        json.append(']');
+    }
+
+    private int[] resolve(String[] names) {
+        int[] indices = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indices[i] = graph.getCityIndex(names[i]);
+        }
+        return indices;
+    }
+
+    private synchronized LandmarkIndex getLandmarks() {
+        if (landmarks == null) {
+            landmarks = new LandmarkIndex(graph, landmarkCount, LandmarkIndex.Selection.AVOID);
+        }
+        return landmarks;
+    }
+
+    private synchronized ContractionHierarchy getHierarchy() {
+        if (hierarchy == null) {
+            hierarchy = new ContractionHierarchy(graph);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Idle engines of one kind. borrow() takes an idle one or creates a new
+     * one; since only permit holders borrow, no more than concurrency engines
+     * of a kind ever exist.
+     */
+    private static class EnginePool<T> {
+        private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+        private final Supplier<T> factory;
+
+        EnginePool(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        T borrow() {
+            T engine = idle.poll();
+            return engine != null ? engine : factory.get();
+        }
+
+        void release(T engine) {
+            idle.offer(engine);
+        }
+    }
+
+    // query string and, for POST, the form-encoded body as alternating names and values
+    private static String[] parseParameters(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (exchange.getRequestMethod().equals("POST")) {
+            try (InputStream body = exchange.getRequestBody()) {
+                String form = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                query = query == null || query.isEmpty() ? form : query + "&" + form;
+            }
+        }
+        if (query == null || query.isEmpty()) {
+            return new String[0];
+        }
+        String[] pairs = query.split("&");
+        String[] parameters = new String[2 * pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int equals = pairs[i].indexOf('=');
+            String name = equals == -1 ? pairs[i] : pairs[i].substring(0, equals);
+            String value = equals == -1 ? "" : pairs[i].substring(equals + 1);
+            parameters[2 * i] = URLDecoder.decode(name, StandardCharsets.UTF_8);
+            parameters[2 * i + 1] = URLDecoder.decode(value, StandardCharsets.UTF_8);
+        }
+        return parameters;
+    }
+
+    private static String parameter(String[] parameters, String name) {
+        for (int i = 0; i < parameters.length; i += 2) {
+            if (parameters[i].equals(name)) {
+                return parameters[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private static String[] splitList(String value) {
+        if (value == null || value.isEmpty()) {
+            return new String[0];
+        }
+        String[] items = value.split(",");
+        for (int i = 0; i < items.length; i++) {
+            items[i] = items[i].trim();
+        }
+        return items;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    // virtual-thread-per-task executor when the running JVM has one, else null
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // missing before JDK 19, a preview feature that is switched off in 19 and 20
+            return null;
+        }
+    }
+
+    private static Graph loadGraph(String filename) throws IOException {
+        if (filename.endsWith(".csv")) {
+            return CSVParser.parseCSVWithSnapshot(filename);
+        }
+        if (filename.endsWith(".graph")) {
+            return Graph.loadSnapshot(filename);
+        }
+        return new EdgeListParser().parse(filename);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String data = "Turkish cities.csv";
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        int port = 8080;
+        int concurrency = 2 * Runtime.getRuntime().availableProcessors();
+        long queueTimeoutMillis = 1000;
+        int backlog = 4096;
+        int landmarkCount = 16;
+        long maxMatrixCells = 250000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-data":
+                    data = value;
+                    break;
+                case "-host":
+                    host = value;
+                    break;
+                case "-port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "-concurrency":
+                    concurrency = Integer.parseInt(value);
+                    break;
+                case "-queue-timeout":
+                    queueTimeoutMillis = Long.parseLong(value);
+                    break;
+                case "-backlog":
+                    backlog = Integer.parseInt(value);
+                    break;
+                case "-landmarks":
+                    landmarkCount = Integer.parseInt(value);
+                    break;
+                case "-max-matrix":
+                    maxMatrixCells = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for option " + args[args.length - 1]);
+        }
+
+        long startTime = System.nanoTime();
+        Graph graph = loadGraph(data);
+        RoutingServer routingServer = new RoutingServer(graph, concurrency, queueTimeoutMillis, landmarkCount,
+                maxMatrixCells);
+        routingServer.start(host, port, backlog);
+        Runtime.getRuntime().addShutdownHook(new Thread(routingServer::stop));
+        long loadTime = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("Loaded " + graph.getNumCities() + " cities and " + graph.getNumEdges() + " roads in "
+                + loadTime + " ms");
+        System.out.println("Listening on http://" + host + ":" + routingServer.getPort() + " with "
+                + (routingServer.usesVirtualThreads() ? "virtual" : "platform") + " threads, concurrency "
+                + concurrency);
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Goal-directed A* search. The lower bounds come from a LandmarkIndex (ALT).
+ * The landmark bounds are consistent, so every city is settled at most once.
+ * Each search behaves like Dijkstra on reduced edge costs and returns the same
+ * distances while settling fewer cities. Compare getStatistics() with
+ * DijkstraAlgorithm to measure the saving. Without an index the bound is 0 and
+ * the search is plain Dijkstra. Not thread-safe: arrays are reused between queries.
+ */
+public class AStarAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int UNKNOWN = -1;
+
+    private Graph graph;
+    private LandmarkIndex landmarks;
+
+    private int[] dist;
+    private int[] parent;
+    private int[] potential; // cached lower bound to the current destination
+    private IndexedMinHeap heap;
+
+    public AStarAlgorithm(Graph graph, LandmarkIndex landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+    }
+
+    public String getName() {
+        return "A* (ALT)";
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        if (landmarks != null && !landmarks.isCurrent()) {
+            throw new IllegalStateException("Landmark index is out of date, rebuild it after changing the graph");
+        }
+
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
+        prepare(graph.getNumCities());
+
+        long nodesSettled = 0;
+        long edgesRelaxed = 0;
+        long heapPushes = 0;
+        long peakFrontier = 0;
+        int sourceBound = potentialOf(sourceIndex, destIndex);
+        if (sourceBound != INF) {
+            dist[sourceIndex] = 0;
+            heap.insert(sourceIndex, sourceBound);
+            heapPushes = 1;
+            peakFrontier = 1;
+        }
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+
+            int currentDist = dist[u];
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < dist[v]) {
+                    int bound = potentialOf(v, destIndex);
+                    if (bound == INF) {
+                        // the landmarks prove v cannot reach the destination
+                        continue;
+                    }
+                    dist[v] = newDist;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, newDist + bound);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+        heap.clear();
+
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled, 0,
+                peakFrontier);
+        if (dist[destIndex] == INF) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = DijkstraAlgorithm.buildPath(graph, parent, destIndex);
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, dist[destIndex], endTime - startTime, statistics);
+    }
+
+    private int potentialOf(int v, int destIndex) {
+        if (landmarks == null) {
+            return 0;
+        }
+        if (potential[v] == UNKNOWN) {
+            potential[v] = landmarks.lowerBound(v, destIndex);
+        }
+        return potential[v];
+    }
+
+    private void prepare(int numCities) {
+        if (dist == null || dist.length != numCities) {
+            dist = new int[numCities];
+            parent = new int[numCities];
+            potential = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+        }
+        for (int i = 0; i < numCities; i++) {
+            dist[i] = INF;
+            parent[i] = -1;
+            potential[i] = UNKNOWN;
+        }
+    }
+}
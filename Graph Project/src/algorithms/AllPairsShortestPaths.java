@@ -0,0 +1,229 @@
+/**
+ * Distance table for every ordered pair of cities, stored row-major in a flat
+ * int[] (entry from * n + to). Unreachable pairs hold Integer.MAX_VALUE.
+ * A second table holds the first city after `from` on a shortest path, so
+ * getPath rebuilds any route by following next hops without another search.
+ *
+ * Dense graphs such as the city matrix use a blocked Floyd-Warshall. Tiles of
+ * TILE x TILE ints (16 KB) keep the three tiles of one update in L1/L2, and
+ * the tiles of a phase are processed in parallel. Sparse graphs run one
+ * Dijkstra per source on the ForkJoin pool instead.
+ * The tables are computed once and read-only afterwards, so a result can be
+ * shared between threads.
+ */
+public class AllPairsShortestPaths {
+    public enum Method {
+        // Floyd-Warshall on dense graphs, Dijkstra per source on sparse ones
+        AUTO,
+        BLOCKED_FLOYD_WARSHALL,
+        PARALLEL_DIJKSTRA
+    }
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int TILE = 64;
+    // sources per parallel Dijkstra task
+    private static final int SOURCE_GRAIN = 4;
+    // largest int[] most JVMs will allocate
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private final Graph graph;
+    private final int n;
+    private final int[] dist;
+    private final int[] next;
+    private final Method method;
+
+    public AllPairsShortestPaths(Graph graph) {
+        this(graph, Method.AUTO);
+    }
+
+    public AllPairsShortestPaths(Graph graph, Method method) {
+        this.graph = graph;
+        graph.freeze();
+        this.n = graph.getNumCities();
+        long cells = (long) n * n;
+        if (cells > MAX_CELLS) {
+            throw new IllegalArgumentException("All-pairs table for " + n + " cities needs " + cells
+                    + " entries, more than an array holds (" + MAX_CELLS + ")");
+        }
+        this.dist = new int[(int) cells];
+        this.next = new int[(int) cells];
+        this.method = method == Method.AUTO ? chooseMethod(graph) : method;
+
+        if (this.method == Method.BLOCKED_FLOYD_WARSHALL) {
+            floydWarshall();
+        } else {
+            parallelDijkstra();
+        }
+    }
+
+    // Floyd-Warshall is O(V^3) either way, so it only pays off once E is close to V^2
+    static Method chooseMethod(Graph graph) {
+        long n = graph.getNumCities();
+        return graph.getNumEdges() * 8L >= n * n ? Method.BLOCKED_FLOYD_WARSHALL : Method.PARALLEL_DIJKSTRA;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public int getNumCities() {
+        return n;
+    }
+
+    public int getDistance(int from, int to) {
+        return dist[from * n + to];
+    }
+
+    // first city after `from` on a shortest path to `to`, -1 if unreachable
+    public int getNextHop(int from, int to) {
+        return next[from * n + to];
+    }
+
+    // the flat distance table itself, not a copy; callers must not modify it
+    public int[] getDistances() {
+        return dist;
+    }
+
+    // the flat next-hop table itself, not a copy; callers must not modify it
+    public int[] getNextHops() {
+        return next;
+    }
+
+    public List<String> getPath(int from, int to) {
+        List<String> path = new List<>();
+        if (next[from * n + to] == -1) {
+            return path;
+        }
+        path.add(graph.getCityName(from));
+        int node = from;
+        while (node != to) {
+            node = next[node * n + to];
+            path.add(graph.getCityName(node));
+        }
+        return path;
+    }
+
+    public PathResult getPathResult(String source, String destination) {
+        long startTime = System.nanoTime();
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+        if (sourceIndex == -1 || destIndex == -1 || dist[sourceIndex * n + destIndex] == INF) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+        List<String> path = getPath(sourceIndex, destIndex);
+        long endTime = System.nanoTime();
+        return new PathResult(path, dist[sourceIndex * n + destIndex], endTime - startTime);
+    }
+
+    private void floydWarshall() {
+        for (int i = 0; i < dist.length; i++) {
+            dist[i] = INF;
+            next[i] = -1;
+        }
+        for (int u = 0; u < n; u++) {
+            dist[u * n + u] = 0;
+            next[u * n + u] = u;
+            for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getEdgeTarget(e);
+                int w = graph.getEdgeWeight(e);
+                if (w < dist[u * n + v]) {
+                    dist[u * n + v] = w;
+                    next[u * n + v] = v;
+                }
+            }
+        }
+
+        int tiles = (n + TILE - 1) / TILE;
+        for (int kt = 0; kt < tiles; kt++) {
+            final int k = kt;
+            // phase 1: the diagonal tile depends only on itself
+            relaxTile(k, k, k);
+
+            // phase 2: tiles in row k and column k need only the diagonal tile
+            ParallelRange.forEach(0, tiles, 1, (from, to) -> {
+                for (int t = from; t < to; t++) {
+                    if (t != k) {
+                        relaxTile(k, t, k);
+                        relaxTile(t, k, k);
+                    }
+                }
+            });
+
+            // phase 3: every other tile reads its row and column tile from phase 2
+            ParallelRange.forEach(0, tiles * tiles, 1, (from, to) -> {
+                for (int t = from; t < to; t++) {
+                    int it = t / tiles;
+                    int jt = t % tiles;
+                    if (it != k && jt != k) {
+                        relaxTile(it, jt, k);
+                    }
+                }
+            });
+        }
+    }
+
+    // dist[i][j] = min(dist[i][j], dist[i][k] + dist[k][j]) for i, j, k in the given tiles
+    private void relaxTile(int iTile, int jTile, int kTile) {
+        int iEnd = Math.min(n, (iTile + 1) * TILE);
+        int jStart = jTile * TILE;
+        int jEnd = Math.min(n, jStart + TILE);
+        int kEnd = Math.min(n, (kTile + 1) * TILE);
+        for (int k = kTile * TILE; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = iTile * TILE; i < iEnd; i++) {
+                int iRow = i * n;
+                int dik = dist[iRow + k];
+                if (dik == INF) {
+                    continue;
+                }
+                int hop = next[iRow + k];
+                // plain indexed loop over two rows, no calls or object accesses inside
+                for (int j = jStart; j < jEnd; j++) {
+                    int through = dik + dist[kRow + j];
+                    // a negative sum means dist[k][j] was INF and the addition overflowed
+                    if (through >= 0 && through < dist[iRow + j]) {
+                        dist[iRow + j] = through;
+                        next[iRow + j] = hop;
+                    }
+                }
+            }
+        }
+    }
+
+    private void parallelDijkstra() {
+        ParallelRange.forEach(0, n, SOURCE_GRAIN, (from, to) -> {
+            IndexedMinHeap heap = new IndexedMinHeap(n);
+            for (int source = from; source < to; source++) {
+                singleSource(source, heap);
+            }
+        });
+    }
+
+    // writes row `source` of both tables; the row doubles as the dist array
+    private void singleSource(int source, IndexedMinHeap heap) {
+        int row = source * n;
+        for (int v = 0; v < n; v++) {
+            dist[row + v] = INF;
+            next[row + v] = -1;
+        }
+        dist[row + source] = 0;
+        next[row + source] = source;
+        heap.insert(source, 0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            int currentDist = dist[row + u];
+            for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < dist[row + v]) {
+                    dist[row + v] = newDist;
+                    // the first hop is inherited from u, or is v itself when u is the source
+                    next[row + v] = u == source ? v : next[row + u];
+                    heap.insertOrDecrease(v, newDist);
+                }
+            }
+        }
+    }
+}
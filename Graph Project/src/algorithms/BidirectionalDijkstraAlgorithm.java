@@ -0,0 +1,200 @@
+/**
+ * Point-to-point Dijkstra that grows a forward search from the source and a
+ * backward search over incoming edges from the destination. Each step expands
+ * the side with the smaller queue minimum. The search stops once the two
+ * minimums together reach the best meeting distance found so far, because no
+ * shorter path can exist after that. On directed graphs the backward search
+ * uses the weights of the original edges, so asymmetric distances are exact.
+ *
+ * The distance always equals DijkstraAlgorithm's. The path is a shortest one,
+ * but when several paths tie it need not be the one DijkstraAlgorithm returns:
+ * which tied path wins depends on the order cities are settled in, and the two
+ * searches settle different cities in a different order.
+ * Not thread-safe: the search arrays are reused between queries.
+ */
+public class BidirectionalDijkstraAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private Graph graph;
+
+    private int[] distForward;
+    private int[] distBackward;
+    private int[] parentForward;   // previous city on the way from the source
+    private int[] parentBackward;  // next city on the way to the destination
+    private IndexedMinHeap heapForward;
+    private IndexedMinHeap heapBackward;
+
+    private long bestDistance;
+    private int meetingNode;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long peakFrontier;
+
+    public BidirectionalDijkstraAlgorithm(Graph graph) {
+        this.graph = graph;
+        graph.enableReverseAdjacency();
+    }
+
+    public String getName() {
+        return "Bidirectional Dijkstra";
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
+        prepare(graph.getNumCities());
+        search(sourceIndex, destIndex);
+        // every pop settles a city: the indexed heaps never hold stale entries
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled, 0,
+                peakFrontier);
+
+        if (meetingNode == -1) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = buildPath();
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, (int) bestDistance, endTime - startTime, statistics);
+    }
+
+    private void search(int sourceIndex, int destIndex) {
+        bestDistance = Long.MAX_VALUE;
+        meetingNode = -1;
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 2;
+        peakFrontier = 2;
+
+        distForward[sourceIndex] = 0;
+        distBackward[destIndex] = 0;
+        heapForward.insert(sourceIndex, 0);
+        heapBackward.insert(destIndex, 0);
+
+        while (!heapForward.isEmpty() && !heapBackward.isEmpty()) {
+            long minForward = heapForward.peekMinKey();
+            long minBackward = heapBackward.peekMinKey();
+            if (minForward + minBackward >= bestDistance) {
+                break;
+            }
+
+            if (minForward <= minBackward) {
+                int u = heapForward.pollMin();
+                nodesSettled++;
+                int currentDist = distForward[u];
+                int end = graph.getEdgeEnd(u);
+                edgesRelaxed += end - graph.getEdgeStart(u);
+                for (int e = graph.getEdgeStart(u); e < end; e++) {
+                    int v = graph.getEdgeTarget(e);
+                    int newDist = currentDist + graph.getEdgeWeight(e);
+                    if (newDist < distForward[v]) {
+                        distForward[v] = newDist;
+                        parentForward[v] = u;
+                        heapForward.insertOrDecrease(v, newDist);
+                        heapPushes++;
+                        updateFrontier();
+                        updateMeeting(v);
+                    }
+                }
+            } else {
+                int u = heapBackward.pollMin();
+                nodesSettled++;
+                int currentDist = distBackward[u];
+                int end = graph.getReverseEdgeEnd(u);
+                edgesRelaxed += end - graph.getReverseEdgeStart(u);
+                for (int e = graph.getReverseEdgeStart(u); e < end; e++) {
+                    int v = graph.getReverseEdgeSource(e);
+                    int newDist = currentDist + graph.getReverseEdgeWeight(e);
+                    if (newDist < distBackward[v]) {
+                        distBackward[v] = newDist;
+                        parentBackward[v] = u;
+                        heapBackward.insertOrDecrease(v, newDist);
+                        heapPushes++;
+                        updateFrontier();
+                        updateMeeting(v);
+                    }
+                }
+            }
+        }
+        heapForward.clear();
+        heapBackward.clear();
+    }
+
+    // both queues together make up the frontier
+    private void updateFrontier() {
+        int size = heapForward.size() + heapBackward.size();
+        if (size > peakFrontier) {
+            peakFrontier = size;
+        }
+    }
+
+    private void updateMeeting(int node) {
+        if (distForward[node] == INF || distBackward[node] == INF) {
+            return;
+        }
+        long total = (long) distForward[node] + distBackward[node];
+        if (total < bestDistance) {
+            bestDistance = total;
+            meetingNode = node;
+        }
+    }
+
+    // source .. meetingNode from the forward tree, then meetingNode .. destination from the backward tree
+    private List<String> buildPath() {
+        IntList tail = new IntList();
+        int node = parentBackward[meetingNode];
+        while (node != -1) {
+            tail.add(node);
+            node = parentBackward[node];
+        }
+
+        // prepend everything so the list is built in linear time
+        List<String> path = new List<>();
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            path.add(0, graph.getCityName(tail.get(i)));
+        }
+        node = meetingNode;
+        while (node != -1) {
+            path.add(0, graph.getCityName(node));
+            node = parentForward[node];
+        }
+        return path;
+    }
+
+    private void prepare(int numCities) {
+        if (distForward == null || distForward.length != numCities) {
+            distForward = new int[numCities];
+            distBackward = new int[numCities];
+            parentForward = new int[numCities];
+            parentBackward = new int[numCities];
+            heapForward = new IndexedMinHeap(numCities);
+            heapBackward = new IndexedMinHeap(numCities);
+        }
+        for (int i = 0; i < numCities; i++) {
+            distForward[i] = INF;
+            distBackward[i] = INF;
+            parentForward[i] = -1;
+            parentBackward[i] = -1;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Dijkstra's algorithm on a monotone bucket queue instead of a comparison heap.
+ * Edge weights are positive integer kilometres, so Dial's circular buckets give
+ * O(1) queue operations when the largest weight is small, and a radix heap
+ * covers wide weight ranges. The queue can be chosen per query. Like
+ * DijkstraAlgorithm, an instance reuses its arrays and is not thread-safe.
+ */
+public class BucketDijkstraAlgorithm implements ShortestPathEngine {
+    public enum QueueMode {
+        // Dial when the largest weight fits DIAL_MAX_WEIGHT, radix heap otherwise
+        AUTO,
+        DIAL,
+        RADIX_HEAP
+    }
+
+    // above this many buckets Dial's bucket scan costs more than the radix heap
+    public static final int DIAL_MAX_WEIGHT = 1 << 16;
+
+    private Graph graph;
+    private QueueMode defaultMode;
+
+    private int[] dist;
+    private int[] parent;
+    private DialQueue dialQueue;
+    private RadixHeap radixHeap;
+
+    public BucketDijkstraAlgorithm(Graph graph) {
+        this(graph, QueueMode.AUTO);
+    }
+
+    public BucketDijkstraAlgorithm(Graph graph, QueueMode defaultMode) {
+        this.graph = graph;
+        this.defaultMode = defaultMode;
+    }
+
+    public String getName() {
+        return "Bucket Dijkstra";
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        return findShortestPath(source, destination, defaultMode);
+    }
+
+    public PathResult findShortestPath(String source, String destination, QueueMode mode) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
+        MonotoneQueue queue = prepare(graph.getNumCities(), resolveMode(mode));
+        dist[sourceIndex] = 0;
+        queue.insertOrDecrease(sourceIndex, 0);
+        long nodesSettled = 0;
+        long edgesRelaxed = 0;
+        long heapPushes = 1;
+        // queued cities: a first label inserts, a better one only moves the city
+        long queued = 1;
+        long peakFrontier = 1;
+
+        while (!queue.isEmpty()) {
+            int u = queue.pollMin();
+            queued--;
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+
+            int currentDist = dist[u];
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < dist[v]) {
+                    if (dist[v] == Integer.MAX_VALUE) {
+                        queued++;
+                        if (queued > peakFrontier) {
+                            peakFrontier = queued;
+                        }
+                    }
+                    dist[v] = newDist;
+                    parent[v] = u;
+                    queue.insertOrDecrease(v, newDist);
+                    heapPushes++;
+                }
+            }
+        }
+        long stalePops = queue.getStalePops();
+        queue.clear();
+
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes,
+                nodesSettled + stalePops, stalePops, peakFrontier);
+        if (dist[destIndex] == Integer.MAX_VALUE) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = DijkstraAlgorithm.buildPath(graph, parent, destIndex);
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, dist[destIndex], endTime - startTime, statistics);
+    }
+
+    // the queue AUTO would pick for the current graph
+    public QueueMode resolveMode(QueueMode mode) {
+        if (mode != QueueMode.AUTO) {
+            return mode;
+        }
+        graph.freeze();
+        if (graph.getMaxEdgeWeight() <= DIAL_MAX_WEIGHT) {
+            return QueueMode.DIAL;
+        }
+        return QueueMode.RADIX_HEAP;
+    }
+
+    private MonotoneQueue prepare(int numCities, QueueMode mode) {
+        if (dist == null || dist.length != numCities) {
+            dist = new int[numCities];
+            parent = new int[numCities];
+            dialQueue = null;
+            radixHeap = null;
+        }
+        for (int i = 0; i < numCities; i++) {
+            dist[i] = Integer.MAX_VALUE;
+            parent[i] = -1;
+        }
+
+        if (mode == QueueMode.DIAL) {
+            int maxWeight = Math.max(1, graph.getMaxEdgeWeight());
+            if (dialQueue == null || dialQueue.getMaxWeight() != maxWeight) {
+                dialQueue = new DialQueue(numCities, maxWeight);
+            }
+            return dialQueue;
+        }
+        if (radixHeap == null) {
+            radixHeap = new RadixHeap(numCities);
+        }
+        return radixHeap;
+    }
+}
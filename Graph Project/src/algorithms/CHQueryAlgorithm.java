@@ -0,0 +1,259 @@
+/**
+ * Point-to-point query on a ContractionHierarchy. Both searches only move to
+ * higher ranked cities: forward from the source over up edges, and backward
+ * from the destination over down edges. Every shortest path has a highest city
+ * where the two searches meet. A search stops once its queue minimum reaches
+ * the best meeting distance. Cities whose label can be beaten through a higher
+ * neighbor are stalled and not expanded (stall-on-demand). Shortcuts on the
+ * result are unpacked, so the path lists real cities.
+ * Not thread-safe; use one instance per thread over a shared hierarchy.
+ */
+public class CHQueryAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private ContractionHierarchy hierarchy;
+    private Graph graph;
+
+    private int[] distForward;
+    private int[] distBackward;
+    private int[] parentForward;      // lower city the forward label came from
+    private int[] parentEdgeForward;  // up edge index of that step
+    private int[] parentBackward;     // lower city the backward label came from
+    private int[] parentEdgeBackward; // down edge index of that step
+    private IndexedMinHeap heapForward;
+    private IndexedMinHeap heapBackward;
+
+    private long bestDistance;
+    private int meetingNode;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long stalledNodes;
+    private long peakFrontier;
+
+    public CHQueryAlgorithm(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.graph = hierarchy.getGraph();
+    }
+
+    public String getName() {
+        return "Contraction Hierarchies";
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        if (!hierarchy.isCurrent()) {
+            throw new IllegalStateException("Contraction hierarchy is out of date, rebuild it after changing the graph");
+        }
+
+        long allocationMark = SearchStatistics.allocationMark();
+        prepare(hierarchy.getNumCities());
+        search(sourceIndex, destIndex);
+        // stalled cities are popped but not expanded, so they are reported as stale pops
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled,
+                stalledNodes, peakFrontier);
+
+        if (meetingNode == -1) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = unpackPath(sourceIndex);
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, (int) bestDistance, endTime - startTime, statistics);
+    }
+
+    private void search(int sourceIndex, int destIndex) {
+        bestDistance = Long.MAX_VALUE;
+        meetingNode = -1;
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 2;
+        stalledNodes = 0;
+        peakFrontier = 2;
+
+        distForward[sourceIndex] = 0;
+        distBackward[destIndex] = 0;
+        heapForward.insert(sourceIndex, 0);
+        heapBackward.insert(destIndex, 0);
+
+        while (!heapForward.isEmpty() || !heapBackward.isEmpty()) {
+            // a side is finished once its minimum cannot improve the meeting
+            if (!heapForward.isEmpty() && heapForward.peekMinKey() >= bestDistance) {
+                heapForward.clear();
+            }
+            if (!heapBackward.isEmpty() && heapBackward.peekMinKey() >= bestDistance) {
+                heapBackward.clear();
+            }
+
+            boolean forward;
+            if (heapForward.isEmpty()) {
+                if (heapBackward.isEmpty()) {
+                    break;
+                }
+                forward = false;
+            } else if (heapBackward.isEmpty()) {
+                forward = true;
+            } else {
+                forward = heapForward.peekMinKey() <= heapBackward.peekMinKey();
+            }
+
+            if (forward) {
+                settleForward(heapForward.pollMin());
+            } else {
+                settleBackward(heapBackward.pollMin());
+            }
+        }
+        heapForward.clear();
+        heapBackward.clear();
+    }
+
+    private void settleForward(int u) {
+        nodesSettled++;
+        int currentDist = distForward[u];
+        updateMeeting(u);
+
+        // stalled: a higher city reaches u more cheaply, so u is not on a shortest up path
+        for (int e = hierarchy.getDownEdgeStart(u); e < hierarchy.getDownEdgeEnd(u); e++) {
+            int higher = hierarchy.getDownEdgeSource(e);
+            if (distForward[higher] != INF
+                    && (long) distForward[higher] + hierarchy.getDownEdgeWeight(e) < currentDist) {
+                stalledNodes++;
+                return;
+            }
+        }
+
+        int end = hierarchy.getUpEdgeEnd(u);
+        edgesRelaxed += end - hierarchy.getUpEdgeStart(u);
+        for (int e = hierarchy.getUpEdgeStart(u); e < end; e++) {
+            int v = hierarchy.getUpEdgeTarget(e);
+            int newDist = currentDist + hierarchy.getUpEdgeWeight(e);
+            if (newDist < distForward[v]) {
+                distForward[v] = newDist;
+                parentForward[v] = u;
+                parentEdgeForward[v] = e;
+                heapForward.insertOrDecrease(v, newDist);
+                heapPushes++;
+                updateFrontier();
+                updateMeeting(v);
+            }
+        }
+    }
+
+    private void settleBackward(int u) {
+        nodesSettled++;
+        int currentDist = distBackward[u];
+        updateMeeting(u);
+
+        for (int e = hierarchy.getUpEdgeStart(u); e < hierarchy.getUpEdgeEnd(u); e++) {
+            int higher = hierarchy.getUpEdgeTarget(e);
+            if (distBackward[higher] != INF
+                    && (long) distBackward[higher] + hierarchy.getUpEdgeWeight(e) < currentDist) {
+                stalledNodes++;
+                return;
+            }
+        }
+
+        int end = hierarchy.getDownEdgeEnd(u);
+        edgesRelaxed += end - hierarchy.getDownEdgeStart(u);
+        for (int e = hierarchy.getDownEdgeStart(u); e < end; e++) {
+            int v = hierarchy.getDownEdgeSource(e);
+            int newDist = currentDist + hierarchy.getDownEdgeWeight(e);
+            if (newDist < distBackward[v]) {
+                distBackward[v] = newDist;
+                parentBackward[v] = u;
+                parentEdgeBackward[v] = e;
+                heapBackward.insertOrDecrease(v, newDist);
+                heapPushes++;
+                updateFrontier();
+                updateMeeting(v);
+            }
+        }
+    }
+
+    private void updateFrontier() {
+        int size = heapForward.size() + heapBackward.size();
+        if (size > peakFrontier) {
+            peakFrontier = size;
+        }
+    }
+
+    private void updateMeeting(int node) {
+        if (distForward[node] == INF || distBackward[node] == INF) {
+            return;
+        }
+        long total = (long) distForward[node] + distBackward[node];
+        if (total < bestDistance) {
+            bestDistance = total;
+            meetingNode = node;
+        }
+    }
+
+    private List<String> unpackPath(int sourceIndex) {
+        // hierarchy cities from the source up to the meeting city
+        IntList upChain = new IntList();
+        int node = meetingNode;
+        while (node != sourceIndex) {
+            upChain.add(node);
+            node = parentForward[node];
+        }
+
+        IntList cities = new IntList();
+        cities.add(sourceIndex);
+        int from = sourceIndex;
+        for (int i = upChain.size() - 1; i >= 0; i--) {
+            int to = upChain.get(i);
+            hierarchy.unpackEdge(from, to, hierarchy.getUpEdgeMiddle(parentEdgeForward[to]), cities);
+            from = to;
+        }
+        // down from the meeting city to the destination
+        while (parentBackward[from] != -1) {
+            int to = parentBackward[from];
+            hierarchy.unpackEdge(from, to, hierarchy.getDownEdgeMiddle(parentEdgeBackward[from]), cities);
+            from = to;
+        }
+
+        List<String> path = new List<>();
+        for (int i = cities.size() - 1; i >= 0; i--) {
+            path.add(0, graph.getCityName(cities.get(i)));
+        }
+        return path;
+    }
+
+    private void prepare(int numCities) {
+        if (distForward == null || distForward.length != numCities) {
+            distForward = new int[numCities];
+            distBackward = new int[numCities];
+            parentForward = new int[numCities];
+            parentEdgeForward = new int[numCities];
+            parentBackward = new int[numCities];
+            parentEdgeBackward = new int[numCities];
+            heapForward = new IndexedMinHeap(numCities);
+            heapBackward = new IndexedMinHeap(numCities);
+        }
+        for (int i = 0; i < numCities; i++) {
+            distForward[i] = INF;
+            distBackward[i] = INF;
+            parentForward[i] = -1;
+            parentBackward[i] = -1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Dijkstra queries that any number of threads can run at once against one
+ * graph. The graph is frozen when the engine is created and only read after
+ * that. Each thread gets its own SearchWorkspace on first use and keeps it, so
+ * threads share no mutable state and take no locks. Thanks to the generation
+ * stamps, a query touches only the cities it reaches instead of resetting
+ * O(V) arrays.
+ *
+ * Adding cities or edges after construction is not supported; queries then
+ * fail with IllegalStateException, and a new engine has to be created.
+ */
+public class ConcurrentQueryEngine implements ShortestPathEngine {
+    // pairs handed to one task by findShortestPaths
+    private static final int BATCH_GRAIN = 16;
+
+    private final Graph graph;
+    private final int numCities;
+    private final int modificationCount;
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    public ConcurrentQueryEngine(Graph graph) {
+        this.graph = graph;
+        graph.freeze();
+        this.numCities = graph.getNumCities();
+        this.modificationCount = graph.getModificationCount();
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(numCities));
+    }
+
+    public String getName() {
+        return "Concurrent Dijkstra";
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        return search(sourceIndex, destIndex, startTime);
+    }
+
+    /**
+     * Answers sources[i] -> destinations[i] for every i, spreading the pairs
+     * over the ForkJoin pool. Each result reports its own search time.
+     */
+    public PathResult[] findShortestPaths(String[] sources, String[] destinations) {
+        if (sources.length != destinations.length) {
+            throw new IllegalArgumentException("Sources and destinations must have the same length");
+        }
+        PathResult[] results = new PathResult[sources.length];
+        ParallelRange.forEach(0, sources.length, BATCH_GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = findShortestPath(sources[i], destinations[i]);
+            }
+        });
+        return results;
+    }
+
+    private PathResult search(int sourceIndex, int destIndex, long startTime) {
+        if (graph.getModificationCount() != modificationCount) {
+            throw new IllegalStateException("Graph was modified after the query engine was created");
+        }
+
+        long allocationMark = SearchStatistics.allocationMark();
+        SearchWorkspace workspace = workspaces.get();
+        workspace.begin();
+        IndexedMinHeap heap = workspace.getHeap();
+        long nodesSettled = 0;
+        long edgesRelaxed = 0;
+        long heapPushes = 1;
+        long peakFrontier = 1;
+
+        workspace.setLabel(sourceIndex, 0, -1);
+        heap.insert(sourceIndex, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+
+            int currentDist = workspace.getDistance(u);
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < workspace.getDistance(v)) {
+                    workspace.setLabel(v, newDist, u);
+                    heap.insertOrDecrease(v, newDist);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled, 0,
+                peakFrontier);
+        if (!workspace.isVisited(destIndex)) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = new List<>();
+        int node = destIndex;
+        while (node != -1) {
+            path.add(0, graph.getCityName(node));
+            node = workspace.getParent(node);
+        }
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, workspace.getDistance(destIndex), endTime - startTime, statistics);
+    }
+}
@@ -0,0 +1,555 @@
+/**
+ * Contraction Hierarchies preprocessing. Cities are contracted one by one in
+ * order of their edge difference: shortcuts that contracting a city would add,
+ * minus the edges it removes, plus how many of its neighbors are already
+ * contracted. Contracting city x adds a shortcut u -> v with middle x, unless a
+ * witness search finds a path from u to v that avoids x and is no longer than
+ * u -> x -> v.
+ *
+ * Contraction runs in rounds. Each round picks an independent set of cities
+ * whose priority is lower than every neighbor's. Priorities and shortcuts are
+ * computed in parallel on the ForkJoin pool. Those witness searches avoid the
+ * whole set, so contracting the set at once is exact. The graph is then updated
+ * sequentially, and the result does not depend on the thread count.
+ *
+ * The result is two upward graphs, one for the forward and one for the
+ * backward query, plus each shortcut's middle city for unpacking. The hierarchy
+ * is read-only after construction and can be shared by CHQueryAlgorithm
+ * instances on several threads.
+ */
+public class ContractionHierarchy {
+    static final int INF = Integer.MAX_VALUE;
+    private static final int NO_MIDDLE = -1;
+    // witness searches give up after this many settled cities and keep the shortcut;
+    // priority estimates only need a rough count, so they search less
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int ESTIMATE_SETTLE_LIMIT = 50;
+    private static final int GRAIN = 64;
+
+    private final Graph graph;
+    private final int numCities;
+    private final int modificationCount;
+    private final int[] rank;
+    private int shortcutCount;
+
+    // edges x -> v with rank[v] > rank[x], stored at x
+    private int[] upOffsets;
+    private int[] upTargets;
+    private int[] upWeights;
+    private int[] upMiddle;
+
+    // edges u -> x with rank[u] > rank[x], stored at x for the backward search
+    private int[] downOffsets;
+    private int[] downSources;
+    private int[] downWeights;
+    private int[] downMiddle;
+
+    // contraction state, dropped after construction
+    private EdgeBuffer[] outEdges;
+    private EdgeBuffer[] inEdges;
+    private boolean[] contracted;
+    private boolean[] inBatch;
+    private int[] priority;
+    private boolean[] dirty;
+    private int[] deletedNeighbors;
+    private ThreadLocal<WitnessSearch> witnessSearches;
+
+    public ContractionHierarchy(Graph graph) {
+        this.graph = graph;
+        graph.freeze();
+        this.numCities = graph.getNumCities();
+        this.modificationCount = graph.getModificationCount();
+        this.rank = new int[numCities];
+        this.shortcutCount = 0;
+        build();
+    }
+
+    public int getNumCities() {
+        return numCities;
+    }
+
+    // position of the city in the contraction order, higher is more important
+    public int getRank(int cityIndex) {
+        return rank[cityIndex];
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    // false once cities or edges were added, changed or removed after preprocessing
+    public boolean isCurrent() {
+        return graph.getModificationCount() == modificationCount;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public int getUpEdgeStart(int cityIndex) {
+        return upOffsets[cityIndex];
+    }
+
+    public int getUpEdgeEnd(int cityIndex) {
+        return upOffsets[cityIndex + 1];
+    }
+
+    public int getUpEdgeTarget(int edgeIndex) {
+        return upTargets[edgeIndex];
+    }
+
+    public int getUpEdgeWeight(int edgeIndex) {
+        return upWeights[edgeIndex];
+    }
+
+    public int getDownEdgeStart(int cityIndex) {
+        return downOffsets[cityIndex];
+    }
+
+    public int getDownEdgeEnd(int cityIndex) {
+        return downOffsets[cityIndex + 1];
+    }
+
+    // higher ranked city the edge comes from
+    public int getDownEdgeSource(int edgeIndex) {
+        return downSources[edgeIndex];
+    }
+
+    public int getDownEdgeWeight(int edgeIndex) {
+        return downWeights[edgeIndex];
+    }
+
+    /**
+     * Appends the original cities after `from` on the hierarchy edge
+     * from -> to with the given middle city (NO_MIDDLE for an original edge).
+     */
+    void unpackEdge(int from, int to, int middle, IntList out) {
+        IntStack stack = new IntStack();
+        stack.push(from);
+        stack.push(to);
+        stack.push(middle);
+        while (!stack.isEmpty()) {
+            int m = stack.pop();
+            int b = stack.pop();
+            int a = stack.pop();
+            if (m == NO_MIDDLE) {
+                out.add(b);
+                continue;
+            }
+            // the middle city was contracted before both ends, so a -> m is a
+            // down edge stored at m and m -> b is an up edge stored at m
+            int second = findUpEdge(m, b);
+            int first = findDownEdge(m, a);
+            stack.push(m);
+            stack.push(b);
+            stack.push(upMiddle[second]);
+            stack.push(a);
+            stack.push(m);
+            stack.push(downMiddle[first]);
+        }
+    }
+
+    int getUpEdgeMiddle(int edgeIndex) {
+        return upMiddle[edgeIndex];
+    }
+
+    int getDownEdgeMiddle(int edgeIndex) {
+        return downMiddle[edgeIndex];
+    }
+
+    private int findUpEdge(int from, int to) {
+        for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++) {
+            if (upTargets[e] == to) {
+                return e;
+            }
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + from + " -> " + to);
+    }
+
+    private int findDownEdge(int at, int source) {
+        for (int e = downOffsets[at]; e < downOffsets[at + 1]; e++) {
+            if (downSources[e] == source) {
+                return e;
+            }
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + source + " -> " + at);
+    }
+
+    private void build() {
+        outEdges = new EdgeBuffer[numCities];
+        inEdges = new EdgeBuffer[numCities];
+        for (int v = 0; v < numCities; v++) {
+            outEdges[v] = new EdgeBuffer();
+            inEdges[v] = new EdgeBuffer();
+        }
+        // copy the graph, keeping the lightest of parallel edges and no loops
+        for (int u = 0; u < numCities; u++) {
+            for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getEdgeTarget(e);
+                if (v != u) {
+                    addOrImprove(u, v, graph.getEdgeWeight(e), NO_MIDDLE);
+                }
+            }
+        }
+
+        contracted = new boolean[numCities];
+        inBatch = new boolean[numCities];
+        priority = new int[numCities];
+        dirty = new boolean[numCities];
+        deletedNeighbors = new int[numCities];
+        witnessSearches = ThreadLocal.withInitial(() -> new WitnessSearch(numCities));
+        EdgeBuffer[] finalUp = new EdgeBuffer[numCities];
+        EdgeBuffer[] finalDown = new EdgeBuffer[numCities];
+
+        int[] remaining = new int[numCities];
+        int remainingCount = numCities;
+        for (int v = 0; v < numCities; v++) {
+            remaining[v] = v;
+            dirty[v] = true;
+        }
+        int nextRank = 0;
+
+        while (remainingCount > 0) {
+            final int[] nodes = remaining;
+            final int count = remainingCount;
+
+            ParallelRange.forEach(0, count, GRAIN, (from, to) -> {
+                WitnessSearch search = witnessSearches.get();
+                for (int i = from; i < to; i++) {
+                    int x = nodes[i];
+                    if (dirty[x]) {
+                        int shortcuts = contract(x, search, null);
+                        priority[x] = shortcuts - inEdges[x].size - outEdges[x].size + deletedNeighbors[x];
+                        dirty[x] = false;
+                    }
+                }
+            });
+
+            ParallelRange.forEach(0, count, GRAIN, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int x = nodes[i];
+                    inBatch[x] = isLocalMinimum(x);
+                }
+            });
+
+            int batchSize = 0;
+            for (int i = 0; i < count; i++) {
+                if (inBatch[nodes[i]]) {
+                    batchSize++;
+                }
+            }
+            final int[] batch = new int[batchSize];
+            batchSize = 0;
+            for (int i = 0; i < count; i++) {
+                if (inBatch[nodes[i]]) {
+                    batch[batchSize] = nodes[i];
+                    batchSize++;
+                }
+            }
+
+            final IntList[] shortcuts = new IntList[batch.length];
+            ParallelRange.forEach(0, batch.length, 1, (from, to) -> {
+                WitnessSearch search = witnessSearches.get();
+                for (int i = from; i < to; i++) {
+                    shortcuts[i] = new IntList();
+                    contract(batch[i], search, shortcuts[i]);
+                }
+            });
+
+            for (int i = 0; i < batch.length; i++) {
+                int x = batch[i];
+                rank[x] = nextRank;
+                nextRank++;
+                contracted[x] = true;
+                inBatch[x] = false;
+                finalUp[x] = outEdges[x];
+                finalDown[x] = inEdges[x];
+                removeFromNeighbors(x);
+                outEdges[x] = null;
+                inEdges[x] = null;
+            }
+            for (int i = 0; i < batch.length; i++) {
+                IntList list = shortcuts[i];
+                for (int j = 0; j < list.size(); j += 3) {
+                    int u = list.get(j);
+                    int v = list.get(j + 1);
+                    addOrImprove(u, v, list.get(j + 2), batch[i]);
+                    dirty[u] = true;
+                    dirty[v] = true;
+                }
+            }
+
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!contracted[nodes[i]]) {
+                    remaining[kept] = nodes[i];
+                    kept++;
+                }
+            }
+            remainingCount = kept;
+        }
+
+        compile(finalUp, finalDown);
+        outEdges = null;
+        inEdges = null;
+        contracted = null;
+        inBatch = null;
+        priority = null;
+        dirty = null;
+        deletedNeighbors = null;
+        witnessSearches = null;
+    }
+
+    // lower priority than every uncontracted neighbor, ties broken by index
+    private boolean isLocalMinimum(int x) {
+        EdgeBuffer outs = outEdges[x];
+        for (int j = 0; j < outs.size; j++) {
+            if (!before(x, outs.node[j])) {
+                return false;
+            }
+        }
+        EdgeBuffer ins = inEdges[x];
+        for (int j = 0; j < ins.size; j++) {
+            if (!before(x, ins.node[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean before(int x, int y) {
+        return priority[x] < priority[y] || (priority[x] == priority[y] && x < y);
+    }
+
+    /**
+     * Counts the shortcuts contracting x needs. When out is not null the
+     * shortcuts are also appended to it as (u, v, weight) triples.
+     */
+    private int contract(int x, WitnessSearch search, IntList out) {
+        EdgeBuffer ins = inEdges[x];
+        EdgeBuffer outs = outEdges[x];
+        int needed = 0;
+        for (int i = 0; i < ins.size; i++) {
+            int u = ins.node[i];
+            int toX = ins.weight[i];
+            int limit = 0;
+            for (int j = 0; j < outs.size; j++) {
+                if (outs.node[j] != u && toX + outs.weight[j] > limit) {
+                    limit = toX + outs.weight[j];
+                }
+            }
+            if (limit == 0) {
+                continue;
+            }
+
+            int targets = 0;
+            for (int j = 0; j < outs.size; j++) {
+                if (outs.node[j] != u && search.markTarget(outs.node[j])) {
+                    targets++;
+                }
+            }
+            search.run(u, x, limit, targets, out != null ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT, out != null);
+            for (int j = 0; j < outs.size; j++) {
+                int v = outs.node[j];
+                if (v == u) {
+                    continue;
+                }
+                int viaX = toX + outs.weight[j];
+                if (search.distanceTo(v) <= viaX) {
+                    continue;
+                }
+                needed++;
+                if (out != null) {
+                    out.add(u);
+                    out.add(v);
+                    out.add(viaX);
+                }
+            }
+        }
+        return needed;
+    }
+
+    private void removeFromNeighbors(int x) {
+        EdgeBuffer outs = outEdges[x];
+        for (int j = 0; j < outs.size; j++) {
+            int v = outs.node[j];
+            EdgeBuffer list = inEdges[v];
+            list.removeAt(list.find(x));
+            deletedNeighbors[v]++;
+            dirty[v] = true;
+        }
+        EdgeBuffer ins = inEdges[x];
+        for (int j = 0; j < ins.size; j++) {
+            int u = ins.node[j];
+            EdgeBuffer list = outEdges[u];
+            list.removeAt(list.find(x));
+            deletedNeighbors[u]++;
+            dirty[u] = true;
+        }
+    }
+
+    private void addOrImprove(int u, int v, int weight, int middle) {
+        EdgeBuffer outs = outEdges[u];
+        int index = outs.find(v);
+        if (index == -1) {
+            outs.add(v, weight, middle);
+            inEdges[v].add(u, weight, middle);
+            if (middle != NO_MIDDLE) {
+                shortcutCount++;
+            }
+            return;
+        }
+        if (weight < outs.weight[index]) {
+            outs.weight[index] = weight;
+            outs.middle[index] = middle;
+            EdgeBuffer ins = inEdges[v];
+            int back = ins.find(u);
+            ins.weight[back] = weight;
+            ins.middle[back] = middle;
+        }
+    }
+
+    private void compile(EdgeBuffer[] finalUp, EdgeBuffer[] finalDown) {
+        upOffsets = new int[numCities + 1];
+        downOffsets = new int[numCities + 1];
+        for (int x = 0; x < numCities; x++) {
+            upOffsets[x + 1] = upOffsets[x] + finalUp[x].size;
+            downOffsets[x + 1] = downOffsets[x] + finalDown[x].size;
+        }
+        upTargets = new int[upOffsets[numCities]];
+        upWeights = new int[upTargets.length];
+        upMiddle = new int[upTargets.length];
+        downSources = new int[downOffsets[numCities]];
+        downWeights = new int[downSources.length];
+        downMiddle = new int[downSources.length];
+        for (int x = 0; x < numCities; x++) {
+            EdgeBuffer up = finalUp[x];
+            for (int j = 0; j < up.size; j++) {
+                int e = upOffsets[x] + j;
+                upTargets[e] = up.node[j];
+                upWeights[e] = up.weight[j];
+                upMiddle[e] = up.middle[j];
+            }
+            EdgeBuffer down = finalDown[x];
+            for (int j = 0; j < down.size; j++) {
+                int e = downOffsets[x] + j;
+                downSources[e] = down.node[j];
+                downWeights[e] = down.weight[j];
+                downMiddle[e] = down.middle[j];
+            }
+        }
+    }
+
+    // growable (neighbor, weight, middle) triples of one city
+    private static class EdgeBuffer {
+        int[] node;
+        int[] weight;
+        int[] middle;
+        int size;
+
+        EdgeBuffer() {
+            this.node = new int[4];
+            this.weight = new int[4];
+            this.middle = new int[4];
+            this.size = 0;
+        }
+
+        void add(int n, int w, int m) {
+            if (size == node.length) {
+                int[] newNode = new int[size * 2];
+                int[] newWeight = new int[size * 2];
+                int[] newMiddle = new int[size * 2];
+                System.arraycopy(node, 0, newNode, 0, size);
+                System.arraycopy(weight, 0, newWeight, 0, size);
+                System.arraycopy(middle, 0, newMiddle, 0, size);
+                node = newNode;
+                weight = newWeight;
+                middle = newMiddle;
+            }
+            node[size] = n;
+            weight[size] = w;
+            middle[size] = m;
+            size++;
+        }
+
+        int find(int n) {
+            for (int i = 0; i < size; i++) {
+                if (node[i] == n) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // order does not matter, so the last entry fills the gap
+        void removeAt(int index) {
+            size--;
+            node[index] = node[size];
+            weight[index] = weight[size];
+            middle[index] = middle[size];
+        }
+    }
+
+    // bounded Dijkstra on the remaining graph, one instance per worker thread
+    private class WitnessSearch {
+        private final int[] dist;
+        private final int[] stamp;
+        private final int[] targetStamp;
+        private final IndexedMinHeap heap;
+        private int generation;
+
+        WitnessSearch(int size) {
+            this.dist = new int[size];
+            this.stamp = new int[size];
+            this.targetStamp = new int[size];
+            this.heap = new IndexedMinHeap(size);
+            this.generation = 0;
+        }
+
+        // marks v as a target of the next run; false if it already was
+        boolean markTarget(int v) {
+            if (targetStamp[v] == generation + 1) {
+                return false;
+            }
+            targetStamp[v] = generation + 1;
+            return true;
+        }
+
+        // stops early once all marked targets are settled
+        void run(int source, int excluded, int limit, int targets, int settleLimit, boolean avoidBatch) {
+            generation++;
+            dist[source] = 0;
+            stamp[source] = generation;
+            heap.insert(source, 0);
+            int settled = 0;
+            while (!heap.isEmpty() && targets > 0) {
+                int u = heap.pollMin();
+                if (dist[u] > limit || settled == settleLimit) {
+                    break;
+                }
+                settled++;
+                if (targetStamp[u] == generation) {
+                    targets--;
+                }
+                EdgeBuffer outs = outEdges[u];
+                for (int j = 0; j < outs.size; j++) {
+                    int v = outs.node[j];
+                    if (v == excluded || (avoidBatch && inBatch[v])) {
+                        continue;
+                    }
+                    int newDist = dist[u] + outs.weight[j];
+                    if (stamp[v] != generation || newDist < dist[v]) {
+                        dist[v] = newDist;
+                        stamp[v] = generation;
+                        heap.insertOrDecrease(v, newDist);
+                    }
+                }
+            }
+            heap.clear();
+        }
+
+        int distanceTo(int v) {
+            return stamp[v] == generation ? dist[v] : INF;
+        }
+    }
+}
@@ -25,61 +25,70 @@ public class DFSAlgorithm {
             return new PathResult(path, 0, endTime - startTime);
         }
         
-        Stack<Integer> stack = new Stack<>();
-        List<Boolean> visited = new List<>();
-        List<Integer> parent = new List<>();
-        
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
         int numCities = graph.getNumCities();
+        IntStack stack = new IntStack();
+        BitSet visited = new BitSet(numCities);
+        int[] parent = new int[numCities];
+        
         for (int i = 0; i < numCities; i++) {
-            visited.add(false);
-            parent.add(-1);
+            parent[i] = -1;
         }
         
         stack.push(sourceIndex);
-        visited.set(sourceIndex, true);
+        visited.set(sourceIndex);
+        long pushes = 1;
+        long pops = 0;
+        long edgesScanned = 0;
+        int peakStack = 1;
         
         while (!stack.isEmpty()) {
             int current = stack.pop();
+            pops++;
             if (current == destIndex) {
                 List<String> path = new List<>();
                 int node = destIndex;
                 
+                int totalDistance = 0;
+                
                 while (node != -1) {
                     String cityName = graph.getCityName(node);
                     path.add(0, cityName);
-                    node = parent.get(node);
-                }
-                
-                int totalDistance = 0;
-                for (int i = 0; i < path.size() - 1; i++) {
-                    String fromCity = path.get(i);
-                    String toCity = path.get(i + 1);
-                    int fromIndex = graph.getCityIndex(fromCity);
-                    int toIndex = graph.getCityIndex(toCity);
-                    int distance = graph.getDistance(fromIndex, toIndex);
-                    totalDistance = totalDistance + distance;
+                    if (parent[node] != -1) {
+                        totalDistance = totalDistance + graph.getDistance(parent[node], node);
+                    }
+                    node = parent[node];
                 }
                 
+                SearchStatistics statistics = new SearchStatistics(pops, edgesScanned, pushes, pops, 0, peakStack);
+                statistics.setAllocatedSince(allocationMark);
                 long endTime = System.nanoTime();
-                return new PathResult(path, totalDistance, endTime - startTime);
+                return new PathResult(path, totalDistance, endTime - startTime, statistics);
             }
             
             // explore neighbors
-            List<Graph.Edge> neighbors = graph.getNeighbors(current);
-            for (int i = 0; i < neighbors.size(); i++) {
-                Graph.Edge edge = neighbors.get(i);
-                int neighbor = edge.to;
+            int end = graph.getEdgeEnd(current);
+            for (int e = graph.getEdgeStart(current); e < end; e++) {
+                int neighbor = graph.getEdgeTarget(e);
+                edgesScanned++;
                 
                 if (!visited.get(neighbor)) {
-                    visited.set(neighbor, true);
-                    parent.set(neighbor, current);
+                    visited.set(neighbor);
+                    parent[neighbor] = current;
                     stack.push(neighbor);
+                    pushes++;
                 }
             }
+            if (stack.size() > peakStack) {
+                peakStack = stack.size();
+            }
         }
         
         // no path 
+        SearchStatistics statistics = new SearchStatistics(pops, edgesScanned, pushes, pops, 0, peakStack);
+        statistics.setAllocatedSince(allocationMark);
         long endTime = System.nanoTime();
-        return new PathResult(new List<>(), 0, endTime - startTime);
+        return new PathResult(new List<>(), 0, endTime - startTime, statistics);
     }
 }
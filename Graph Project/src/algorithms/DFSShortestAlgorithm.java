@@ -1,120 +1,249 @@
-public class DFSShortestAlgorithm {
+/**
+ * Exhaustive simple-path search used as a verification oracle for the other
+ * engines. It is a depth-first branch-and-bound with in-place backtracking over
+ * one path array and one BitSet, and all arrays are reused between queries.
+ *
+ * Each query first runs Dijkstra backwards from the destination. That gives
+ * h(v), the exact remaining distance, which is the pruning bound. It also
+ * orders each city's edges by w + h(target), so the first complete path is
+ * already optimal. Cities that cannot reach the destination are never entered.
+ *
+ * Among paths of equal length it returns the one the plain stack-based DFS
+ * found first, which tries a city's edges from last to first. Paths are
+ * compared edge by edge, and a path is only pruned on a tie if it comes later
+ * in that order.
+ * Not thread-safe because of the reused arrays.
+ */
+public class DFSShortestAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+
+    // how the current prefix compares with the best path in the legacy DFS order
+    private static final int EQUAL = 0;
+    private static final int BEFORE = 1;
+    private static final int AFTER = 2;
+
     private Graph graph;
 
+    // reused between queries, resized when the graph grows
+    private int[] remaining;    // h(v): distance from v to the destination
+    private IndexedMinHeap heap;
+    private int[] edgeOrder;    // edge indices of every city, sorted by w + h(target)
+    private int[] pathNodes;
+    private int[] pathEdges;
+    private int[] pathDist;
+    private int[] cursor;       // next position in edgeOrder for each depth
+    private int[] compare;      // EQUAL, BEFORE or AFTER for each depth
+    private BitSet onPath;
+    private int[] bestNodes;
+    private int[] bestEdges;
+    private int bestLength;     // cities on the best path, 0 if none yet
+    private int bestDistance;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long backtracks;
+    private int maxDepth;
+
     public DFSShortestAlgorithm(Graph graph) {
         this.graph = graph;
     }
 
-    private static class PathState {
-        int node;
-        Stack<Integer> path;
-        List<Boolean> visited;
-        int distance;
-
-        PathState(int node, Stack<Integer> path, List<Boolean> visited, int distance) {
-            this.node = node;
-            this.path = path;
-            this.visited = visited;
-            this.distance = distance;
-        }
+    public String getName() {
+        return "DFS-Shortest";
     }
 
     public PathResult findShortestPath(String source, String destination) {
         long startTime = System.nanoTime();
-        
+
         int sourceIndex = graph.getCityIndex(source);
         int destIndex = graph.getCityIndex(destination);
-        
+
         if (sourceIndex == -1 || destIndex == -1) {
             long endTime = System.nanoTime();
             return new PathResult(new List<>(), 0, endTime - startTime);
         }
-        
+
         if (sourceIndex == destIndex) {
             List<String> path = new List<>();
             path.add(source);
             long endTime = System.nanoTime();
             return new PathResult(path, 0, endTime - startTime);
         }
-        
-        int bestDistance = Integer.MAX_VALUE;
-        List<String> bestPath = null;
-        
-        Stack<PathState> stateStack = new Stack<>();
-        
-        Stack<Integer> initialPath = new Stack<>();
-        initialPath.push(sourceIndex);
-        
-        List<Boolean> initialVisited = new List<>();
-        int numCities = graph.getNumCities();
-        for (int i = 0; i < numCities; i++) {
-            initialVisited.add(false);
+
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.enableReverseAdjacency();
+        graph.freeze();
+        prepare(graph.getNumCities(), graph.getNumEdges());
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        backtracks = 0;
+        maxDepth = 0;
+
+        computeRemaining(graph, destIndex, remaining, heap);
+        if (remaining[sourceIndex] != INF) {
+            sortEdges(graph, remaining, edgeOrder);
+            search(sourceIndex, destIndex);
+        } else {
+            bestLength = 0;
+        }
+
+        // the path stack is the frontier: pushes enter a city, pops backtrack from one
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, nodesSettled, backtracks, 0,
+                maxDepth);
+
+        if (bestLength == 0) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
         }
-        initialVisited.set(sourceIndex, true);
-        
-        PathState initialState = new PathState(sourceIndex, initialPath, initialVisited, 0);
-        stateStack.push(initialState);
-        
-        while (!stateStack.isEmpty()) {
-            PathState currentState = stateStack.pop();
-            int current = currentState.node;
-            Stack<Integer> currentPath = currentState.path;
-            List<Boolean> currentVisited = currentState.visited;
-            int currentDistance = currentState.distance;
-        
-            if (current == destIndex) {
-            if (currentDistance < bestDistance) {
-                bestDistance = currentDistance;
-                
-                bestPath = new List<>();
-                    Stack<Integer> tempStack = currentPath.copy();
-                Stack<Integer> reverseStack = new Stack<>();
-                
-                while (!tempStack.isEmpty()) {
-                    int cityIndex = tempStack.pop();
-                    reverseStack.push(cityIndex);
+
+        List<String> bestPath = new List<>();
+        // prepend from the back so the list is built in linear time
+        for (int i = bestLength - 1; i >= 0; i--) {
+            bestPath.add(0, graph.getCityName(bestNodes[i]));
+        }
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(bestPath, bestDistance, endTime - startTime, statistics);
+    }
+
+    private void search(int sourceIndex, int destIndex) {
+        bestLength = 0;
+        bestDistance = INF;
+
+        int depth = 0;
+        pathNodes[0] = sourceIndex;
+        pathDist[0] = 0;
+        compare[0] = EQUAL;
+        cursor[0] = graph.getEdgeStart(sourceIndex);
+        onPath.set(sourceIndex);
+
+        while (depth >= 0) {
+            int u = pathNodes[depth];
+            if (cursor[depth] == graph.getEdgeEnd(u)) {
+                // every edge tried, backtrack
+                onPath.clear(u);
+                depth--;
+                backtracks++;
+                continue;
+            }
+            int e = edgeOrder[cursor[depth]];
+            cursor[depth]++;
+            edgesRelaxed++;
+
+            int v = graph.getEdgeTarget(e);
+            if (onPath.get(v) || remaining[v] == INF) {
+                continue;
+            }
+            int newDistance = pathDist[depth] + graph.getEdgeWeight(e);
+            long bound = (long) newDistance + remaining[v];
+            if (bound > bestDistance) {
+                continue;
+            }
+            int order = compare[depth];
+            if (order == EQUAL && bestLength > 0) {
+                int bestEdge = bestEdges[depth];
+                order = e > bestEdge ? BEFORE : (e < bestEdge ? AFTER : EQUAL);
+            }
+            // an equally short path only matters if the legacy DFS would have found it first
+            if (bound == bestDistance && order == AFTER) {
+                continue;
+            }
+
+            if (v == destIndex) {
+                if (newDistance < bestDistance || order == BEFORE) {
+                    recordBest(depth, e, v, newDistance);
                 }
-                
-                while (!reverseStack.isEmpty()) {
-                    int cityIndex = reverseStack.pop();
-                    String cityName = graph.getCityName(cityIndex);
-                    bestPath.add(cityName);
+                continue;
+            }
+
+            nodesSettled++;
+            depth++;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+            pathNodes[depth] = v;
+            pathEdges[depth - 1] = e;
+            pathDist[depth] = newDistance;
+            compare[depth] = order;
+            cursor[depth] = graph.getEdgeStart(v);
+            onPath.set(v);
+        }
+    }
+
+    private void recordBest(int depth, int lastEdge, int destIndex, int distance) {
+        for (int i = 0; i <= depth; i++) {
+            bestNodes[i] = pathNodes[i];
+            bestEdges[i] = pathEdges[i];
+            // the current prefix is now a prefix of the best path
+            compare[i] = EQUAL;
+        }
+        bestEdges[depth] = lastEdge;
+        bestNodes[depth + 1] = destIndex;
+        bestLength = depth + 2;
+        bestDistance = distance;
+    }
+
+    // Dijkstra over the reverse edges: exact distance from every city to the destination
+    static void computeRemaining(Graph graph, int destIndex, int[] remaining, IndexedMinHeap heap) {
+        int numCities = remaining.length;
+        for (int i = 0; i < numCities; i++) {
+            remaining[i] = INF;
+        }
+        remaining[destIndex] = 0;
+        heap.insert(destIndex, 0);
+        while (!heap.isEmpty()) {
+            int v = heap.pollMin();
+            int currentDist = remaining[v];
+            for (int e = graph.getReverseEdgeStart(v); e < graph.getReverseEdgeEnd(v); e++) {
+                int u = graph.getReverseEdgeSource(e);
+                int newDist = currentDist + graph.getReverseEdgeWeight(e);
+                if (newDist < remaining[u]) {
+                    remaining[u] = newDist;
+                    heap.insertOrDecrease(u, newDist);
                 }
             }
-                continue;
         }
-        
-        List<Graph.Edge> neighbors = graph.getNeighbors(current);
-        for (int i = 0; i < neighbors.size(); i++) {
-            Graph.Edge edge = neighbors.get(i);
-            int neighbor = edge.to;
-            
-                if (!currentVisited.get(neighbor)) {
-                int newDistance = currentDistance + edge.weight;
-                    
-                if (newDistance < bestDistance) {
-                        Stack<Integer> newPath = currentPath.copy();
-                        newPath.push(neighbor);
-                        
-                        List<Boolean> newVisited = new List<>();
-                        for (int j = 0; j < numCities; j++) {
-                            newVisited.add(currentVisited.get(j));
-                        }
-                        newVisited.set(neighbor, true);
-                        
-                        PathState newState = new PathState(neighbor, newPath, newVisited, newDistance);
-                        stateStack.push(newState);
-                    }
+    }
+
+    // insertion sort within each city's edge range; degrees are small, and it needs no buffer
+    static void sortEdges(Graph graph, int[] remaining, int[] edgeOrder) {
+        int numCities = remaining.length;
+        for (int u = 0; u < numCities; u++) {
+            int start = graph.getEdgeStart(u);
+            int end = graph.getEdgeEnd(u);
+            for (int i = start; i < end; i++) {
+                int e = i;
+                long key = completion(graph, remaining, e);
+                int j = i - 1;
+                while (j >= start && completion(graph, remaining, edgeOrder[j]) > key) {
+                    edgeOrder[j + 1] = edgeOrder[j];
+                    j--;
                 }
+                edgeOrder[j + 1] = e;
             }
         }
-        
-        long endTime = System.nanoTime();
-        
-        if (bestPath == null) {
-            return new PathResult(new List<>(), 0, endTime - startTime);
+    }
+
+    private static long completion(Graph graph, int[] remaining, int e) {
+        int h = remaining[graph.getEdgeTarget(e)];
+        return h == INF ? Long.MAX_VALUE : (long) graph.getEdgeWeight(e) + h;
+    }
+
+    private void prepare(int numCities, int numEdges) {
+        if (remaining == null || remaining.length != numCities) {
+            remaining = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+            pathNodes = new int[numCities];
+            pathEdges = new int[numCities];
+            pathDist = new int[numCities];
+            cursor = new int[numCities];
+            compare = new int[numCities];
+            onPath = new BitSet(numCities);
+            bestNodes = new int[numCities];
+            bestEdges = new int[numCities];
+        }
+        if (edgeOrder == null || edgeOrder.length != numEdges) {
+            edgeOrder = new int[numEdges];
         }
-        
-        return new PathResult(bestPath, bestDistance, endTime - startTime);
     }
 }
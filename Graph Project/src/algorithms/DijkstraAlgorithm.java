@@ -1,116 +1,311 @@
 import java.util.PriorityQueue;
 
-public class DijkstraAlgorithm {
+/**
+ * Dijkstra's algorithm with a selectable priority queue. The default indexed
+ * 4-ary heap does true decrease-key and reuses its arrays between queries, so a
+ * query allocates nothing but its PathResult. Because of that reuse an instance
+ * must not be shared between threads.
+ */
+public class DijkstraAlgorithm implements ShortestPathEngine {
+    public enum QueueType {
+        // java.util.PriorityQueue with lazy deletion of stale entries
+        BINARY_HEAP,
+        // IndexedMinHeap with decrease-key, bounded by the number of cities
+        INDEXED_D_ARY_HEAP
+    }
+
     private Graph graph;
+    private QueueType queueType;
+
+    // reused between queries, resized when the graph grows
+    private int[] dist;
+    private int[] parent;
+    private IndexedMinHeap heap;
+    // cities searchTargets still has to settle
+    private BitSet targets;
+    private int targetsLeft;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long heapPops;
+    private long stalePops;
+    private long peakFrontier;
 
     public DijkstraAlgorithm(Graph graph) {
+        this(graph, QueueType.INDEXED_D_ARY_HEAP);
+    }
+
+    public DijkstraAlgorithm(Graph graph, QueueType queueType) {
         this.graph = graph;
+        this.queueType = queueType;
+    }
+
+    public String getName() {
+        return "Dijkstra";
+    }
+
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
+    public void setQueueType(QueueType queueType) {
+        this.queueType = queueType;
     }
 
     public PathResult findShortestPath(String source, String destination) {
         long startTime = System.nanoTime();
-        
+
         int sourceIndex = graph.getCityIndex(source);
         int destIndex = graph.getCityIndex(destination);
-        
+
         if (sourceIndex == -1 || destIndex == -1) {
             long endTime = System.nanoTime();
             return new PathResult(new List<>(), 0, endTime - startTime);
         }
-        
+
         if (sourceIndex == destIndex) {
             List<String> path = new List<>();
             path.add(source);
             long endTime = System.nanoTime();
             return new PathResult(path, 0, endTime - startTime);
         }
-        
+
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
+        prepare(graph.getNumCities());
+        dist[sourceIndex] = 0;
+        resetCounters();
+
+        if (queueType == QueueType.BINARY_HEAP) {
+            searchWithBinaryHeap(sourceIndex, destIndex);
+        } else {
+            searchWithIndexedHeap(sourceIndex, destIndex);
+        }
+
+        SearchStatistics statistics = statistics();
+
+        // check if path exists
+        if (dist[destIndex] == Integer.MAX_VALUE) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        List<String> path = buildPath(graph, parent, destIndex);
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, dist[destIndex], endTime - startTime, statistics);
+    }
+
+    // one-to-many: every city's distance from one search, null if the city is unknown
+    public ShortestPathTree findShortestPathTree(String source) {
+        int sourceIndex = graph.getCityIndex(source);
+        if (sourceIndex == -1) {
+            return null;
+        }
+        return findShortestPathTree(sourceIndex);
+    }
+
+    /**
+     * Runs the search to exhaustion instead of stopping at a destination. The
+     * returned arrays are copies, so the tree stays valid after later queries.
+     */
+    public ShortestPathTree findShortestPathTree(int sourceIndex) {
+        long startTime = System.nanoTime();
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.freeze();
+        prepare(graph.getNumCities());
+        dist[sourceIndex] = 0;
+        resetCounters();
+        // -1 never matches a city, so the search settles everything reachable
+        searchWithIndexedHeap(sourceIndex, -1);
+        SearchStatistics statistics = statistics();
+        int[] treeDist = dist.clone();
+        int[] treeParent = parent.clone();
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new ShortestPathTree(graph, sourceIndex, treeDist, treeParent, endTime - startTime, statistics);
+    }
+
+    // marks a city for the next searchTargets call
+    public void addTarget(int cityIndex) {
         int numCities = graph.getNumCities();
-        int[] dist = new int[numCities];
-        int[] parent = new int[numCities];
-        boolean[] visited = new boolean[numCities];
-        
-        for (int i = 0; i < numCities; i++) {
-            dist[i] = Integer.MAX_VALUE;
-            parent[i] = -1;
-            visited[i] = false;
+        if (targets == null || targets.size() != numCities) {
+            targets = new BitSet(numCities);
+            targetsLeft = 0;
+        }
+        if (!targets.get(cityIndex)) {
+            targets.set(cityIndex);
+            targetsLeft++;
         }
-        
+    }
+
+    /**
+     * One-to-many without copying: searches from sourceIndex until every city
+     * passed to addTarget since the last call is settled. The results stay in
+     * this engine, read them with getDistance and getParent before the next
+     * query.
+     */
+    public void searchTargets(int sourceIndex) {
+        graph.freeze();
+        prepare(graph.getNumCities());
         dist[sourceIndex] = 0;
-        
+        resetCounters();
+        if (targetsLeft > 0) {
+            searchWithIndexedHeap(sourceIndex, -1);
+        }
+        if (targetsLeft > 0) {
+            // some targets are unreachable and were never settled
+            targets.clearAll();
+            targetsLeft = 0;
+        }
+    }
+
+    // distance from the last search's source, Integer.MAX_VALUE if not reached
+    public int getDistance(int cityIndex) {
+        return dist[cityIndex];
+    }
+
+    // city before cityIndex on the last search's path, -1 for the source and unreached cities
+    public int getParent(int cityIndex) {
+        return parent[cityIndex];
+    }
+
+    private void searchWithIndexedHeap(int sourceIndex, int destIndex) {
+        heap.insert(sourceIndex, 0);
+        heapPushes = 1;
+        peakFrontier = 1;
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            heapPops++;
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+            if (targetsLeft > 0 && targets.get(u)) {
+                targets.clear(u);
+                if (--targetsLeft == 0) {
+                    break;
+                }
+            }
+
+            int currentDist = dist[u];
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                // settled cities never improve since weights are positive
+                if (newDist < dist[v]) {
+                    dist[v] = newDist;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, newDist);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+        heap.clear();
+    }
+
+    private void searchWithBinaryHeap(int sourceIndex, int destIndex) {
+        boolean[] visited = new boolean[dist.length];
         PriorityQueue<PQNode> pq = new PriorityQueue<>();
-        PQNode startNode = new PQNode(0, sourceIndex);
-        pq.add(startNode);
-        
+        pq.add(new PQNode(0, sourceIndex));
+        heapPushes = 1;
+        peakFrontier = 1;
+
         while (!pq.isEmpty()) {
             PQNode current = pq.poll();
+            heapPops++;
             int u = current.cityIndex;
             int currentDist = current.distance;
-            
+
             if (visited[u]) {
+                // a shorter entry for u was settled before this one
+                stalePops++;
                 continue;
             }
-            
+
             visited[u] = true;
-            
+            nodesSettled++;
+
             if (u == destIndex) {
                 break;
             }
-            
-            List<Graph.Edge> neighbors = graph.getNeighbors(u);
-            for (int i = 0; i < neighbors.size(); i++) {
-                Graph.Edge edge = neighbors.get(i);
-                int v = edge.to;
-                int weight = edge.weight;
-                
+
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+
                 if (!visited[v]) {
-                    int newDist = currentDist + weight;
+                    int newDist = currentDist + graph.getEdgeWeight(e);
                     if (newDist < dist[v]) {
                         dist[v] = newDist;
                         parent[v] = u;
-                        PQNode newNode = new PQNode(newDist, v);
-                        pq.add(newNode);
+                        pq.add(new PQNode(newDist, v));
+                        heapPushes++;
+                        if (pq.size() > peakFrontier) {
+                            peakFrontier = pq.size();
+                        }
                     }
                 }
             }
         }
-        
-        // check if path exists
-        if (dist[destIndex] == Integer.MAX_VALUE) {
-            long endTime = System.nanoTime();
-            return new PathResult(new List<>(), 0, endTime - startTime);
+    }
+
+    private void resetCounters() {
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 0;
+        heapPops = 0;
+        stalePops = 0;
+        peakFrontier = 0;
+    }
+
+    private SearchStatistics statistics() {
+        return new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, heapPops, stalePops, peakFrontier);
+    }
+
+    private void prepare(int numCities) {
+        if (dist == null || dist.length != numCities) {
+            dist = new int[numCities];
+            parent = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
         }
-        
+        for (int i = 0; i < numCities; i++) {
+            dist[i] = Integer.MAX_VALUE;
+            parent[i] = -1;
+        }
+    }
+
+    // city names from the start of the parent chain down to destIndex
+    static List<String> buildPath(Graph graph, int[] parent, int destIndex) {
         List<String> path = new List<>();
         int node = destIndex;
-        Stack<String> pathStack = new Stack<>();
-        
         while (node != -1) {
-            String cityName = graph.getCityName(node);
-            pathStack.push(cityName);
+            path.add(0, graph.getCityName(node));
             node = parent[node];
         }
-        
-        while (!pathStack.isEmpty()) {
-            String city = pathStack.pop();
-            path.add(city);
-        }
-        
-        long endTime = System.nanoTime();
-        return new PathResult(path, dist[destIndex], endTime - startTime);
+        return path;
     }
-    
+
     private class PQNode implements Comparable<PQNode> {
         int distance;
         int cityIndex;
-        
+
         public PQNode(int distance, int cityIndex) {
             this.distance = distance;
             this.cityIndex = cityIndex;
         }
-        
+
         public int compareTo(PQNode other) {
-            return this.distance - other.distance;
+            // subtracting could overflow on very long routes
+            return Integer.compare(this.distance, other.distance);
         }
     }
 }
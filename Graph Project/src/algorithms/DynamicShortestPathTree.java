@@ -0,0 +1,324 @@
+/**
+ * Shortest-path tree from one source that stays correct while edges change,
+ * following Ramalingam and Reps. Changes go through this class, which applies
+ * them to the graph and then repairs only the cities whose distance changes:
+ *
+ * - A cheaper or new edge u -> v that beats dist[v] is the start of a
+ *   Dijkstra that only spreads as far as the distances improve.
+ * - A dearer or removed tree edge u -> v can only hurt the subtree below v.
+ *   Its cities are checked in order of their old distance. A city keeps its
+ *   distance when an unaffected neighbor still offers it over an incoming
+ *   edge; it only switches parent. The cities left over get their best offer
+ *   from unaffected neighbors and are settled by a Dijkstra among themselves.
+ * - Any other change leaves every distance as it is.
+ *
+ * The work is proportional to the affected cities and their edges, not to the
+ * graph. Weights must stay positive, which Graph enforces. The tree needs the
+ * reverse adjacency and enables it. If the graph is changed some other way,
+ * isCurrent() turns false and rebuild() starts over.
+ * Not thread-safe.
+ */
+public class DynamicShortestPathTree {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final Graph graph;
+    private final int source;
+    private int modificationCount;
+
+    private int[] dist;
+    private int[] parent;
+    private IndexedMinHeap heap;
+    private BitSet affected;
+    private IntList affectedCities;
+
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long heapPops;
+    private long peakFrontier;
+    private long lastRepairTime;
+    private SearchStatistics lastStatistics;
+
+    public DynamicShortestPathTree(Graph graph, int source) {
+        if (source < 0 || source >= graph.getNumCities()) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        this.graph = graph;
+        this.source = source;
+        this.affectedCities = new IntList();
+        rebuild();
+    }
+
+    public DynamicShortestPathTree(Graph graph, String source) {
+        this(graph, requireCity(graph, source));
+    }
+
+    private static int requireCity(Graph graph, String name) {
+        int index = graph.getCityIndex(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("Unknown city: " + name);
+        }
+        return index;
+    }
+
+    // full Dijkstra from the source, also after the graph was changed behind the tree's back
+    public void rebuild() {
+        long startTime = System.nanoTime();
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.enableReverseAdjacency();
+        graph.freeze();
+        int numCities = graph.getNumCities();
+        if (dist == null || dist.length != numCities) {
+            dist = new int[numCities];
+            parent = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+            affected = new BitSet(numCities);
+        }
+        for (int i = 0; i < numCities; i++) {
+            dist[i] = INF;
+            parent[i] = -1;
+        }
+        resetCounters();
+        dist[source] = 0;
+        push(source, 0);
+        propagate();
+        finish(startTime, allocationMark);
+    }
+
+    /**
+     * Changes the weight of every edge from -> to and repairs the tree.
+     * Returns false, changing nothing, when there is no such edge.
+     */
+    public boolean setEdgeWeight(int from, int to, int weight) {
+        requireCurrent();
+        long startTime = System.nanoTime();
+        long allocationMark = SearchStatistics.allocationMark();
+        if (!graph.setEdgeWeight(from, to, weight)) {
+            return false;
+        }
+        repair(from, to);
+        finish(startTime, allocationMark);
+        return true;
+    }
+
+    // closes a road: removes every edge from -> to and repairs the tree
+    public boolean removeEdge(int from, int to) {
+        requireCurrent();
+        long startTime = System.nanoTime();
+        long allocationMark = SearchStatistics.allocationMark();
+        if (!graph.removeEdge(from, to)) {
+            return false;
+        }
+        repair(from, to);
+        finish(startTime, allocationMark);
+        return true;
+    }
+
+    // opens a road: adds the edge from -> to and repairs the tree
+    public void addEdge(int from, int to, int weight) {
+        requireCurrent();
+        long startTime = System.nanoTime();
+        long allocationMark = SearchStatistics.allocationMark();
+        graph.addEdge(from, to, weight);
+        graph.freeze();
+        repair(from, to);
+        finish(startTime, allocationMark);
+    }
+
+    // false once the graph was changed other than through this tree
+    public boolean isCurrent() {
+        return graph.getModificationCount() == modificationCount;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getDistance(int cityIndex) {
+        return dist[cityIndex];
+    }
+
+    // city before cityIndex on its shortest path, -1 for the source and unreachable cities
+    public int getParent(int cityIndex) {
+        return parent[cityIndex];
+    }
+
+    public boolean isReachable(int cityIndex) {
+        return dist[cityIndex] != INF;
+    }
+
+    // city names from the source to cityIndex, empty if unreachable
+    public List<String> getPath(int cityIndex) {
+        List<String> path = new List<>();
+        if (!isReachable(cityIndex)) {
+            return path;
+        }
+        for (int node = cityIndex; node != -1; node = parent[node]) {
+            path.add(0, graph.getCityName(node));
+        }
+        return path;
+    }
+
+    // copy of the current tree that later repairs leave alone
+    public ShortestPathTree toShortestPathTree() {
+        return new ShortestPathTree(graph, source, dist.clone(), parent.clone(), lastRepairTime, lastStatistics);
+    }
+
+    // work of the last rebuild or repair
+    public SearchStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    // nanoseconds spent by the last rebuild or repair, graph update included
+    public long getLastRepairTime() {
+        return lastRepairTime;
+    }
+
+    private void requireCurrent() {
+        if (!isCurrent()) {
+            throw new IllegalStateException("Graph was modified outside the tree, call rebuild() first");
+        }
+    }
+
+    // brings the tree in line after the edges from -> to changed
+    private void repair(int from, int to) {
+        resetCounters();
+        if (to == source || dist[from] == INF) {
+            // nothing reaches the source, and an unreachable city offers nothing
+            return;
+        }
+        int weight = cheapestEdge(from, to);
+        if (weight != INF && dist[from] + weight < dist[to]) {
+            dist[to] = dist[from] + weight;
+            parent[to] = from;
+            push(to, dist[to]);
+            propagate();
+        } else if (parent[to] == from && (weight == INF || dist[from] + weight > dist[to])) {
+            repairIncrease(to);
+        }
+    }
+
+    private int cheapestEdge(int from, int to) {
+        int best = INF;
+        int end = graph.getEdgeEnd(from);
+        for (int e = graph.getEdgeStart(from); e < end; e++) {
+            if (graph.getEdgeTarget(e) == to && graph.getEdgeWeight(e) < best) {
+                best = graph.getEdgeWeight(e);
+            }
+        }
+        return best;
+    }
+
+    private void repairIncrease(int root) {
+        // phase 1: in order of old distance, find the subtree cities that lose their distance
+        push(root, dist[root]);
+        while (!heap.isEmpty()) {
+            int y = heap.pollMin();
+            heapPops++;
+            int alternative = tightUnaffectedParent(y);
+            if (alternative != -1) {
+                // an equally short route avoids the change, so y and its subtree are fine
+                parent[y] = alternative;
+                continue;
+            }
+            affected.set(y);
+            affectedCities.add(y);
+            int end = graph.getEdgeEnd(y);
+            edgesRelaxed += end - graph.getEdgeStart(y);
+            for (int e = graph.getEdgeStart(y); e < end; e++) {
+                int child = graph.getEdgeTarget(e);
+                if (parent[child] == y && !affected.get(child) && !heap.contains(child)) {
+                    push(child, dist[child]);
+                }
+            }
+        }
+
+        // phase 2: best offer from the unaffected cities, then Dijkstra among the affected ones
+        for (int i = 0; i < affectedCities.size(); i++) {
+            int y = affectedCities.get(i);
+            dist[y] = INF;
+            parent[y] = -1;
+        }
+        for (int i = 0; i < affectedCities.size(); i++) {
+            int y = affectedCities.get(i);
+            int end = graph.getReverseEdgeEnd(y);
+            edgesRelaxed += end - graph.getReverseEdgeStart(y);
+            for (int e = graph.getReverseEdgeStart(y); e < end; e++) {
+                int z = graph.getReverseEdgeSource(e);
+                if (affected.get(z) || dist[z] == INF) {
+                    continue;
+                }
+                int offer = dist[z] + graph.getReverseEdgeWeight(e);
+                if (offer < dist[y]) {
+                    dist[y] = offer;
+                    parent[y] = z;
+                }
+            }
+            if (dist[y] != INF) {
+                push(y, dist[y]);
+            }
+        }
+        for (int i = 0; i < affectedCities.size(); i++) {
+            affected.clear(affectedCities.get(i));
+        }
+        affectedCities.clear();
+        propagate();
+    }
+
+    // an incoming edge from a city outside the affected set that still gives y its distance
+    private int tightUnaffectedParent(int y) {
+        int end = graph.getReverseEdgeEnd(y);
+        edgesRelaxed += end - graph.getReverseEdgeStart(y);
+        for (int e = graph.getReverseEdgeStart(y); e < end; e++) {
+            int z = graph.getReverseEdgeSource(e);
+            if (!affected.get(z) && dist[z] != INF && dist[z] + graph.getReverseEdgeWeight(e) == dist[y]) {
+                return z;
+            }
+        }
+        return -1;
+    }
+
+    // Dijkstra from the queued cities; only cities whose distance improves are reached
+    private void propagate() {
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            heapPops++;
+            nodesSettled++;
+            int currentDist = dist[u];
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < dist[v]) {
+                    dist[v] = newDist;
+                    parent[v] = u;
+                    push(v, newDist);
+                }
+            }
+        }
+    }
+
+    private void push(int city, int key) {
+        heap.insertOrDecrease(city, key);
+        heapPushes++;
+        if (heap.size() > peakFrontier) {
+            peakFrontier = heap.size();
+        }
+    }
+
+    private void resetCounters() {
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 0;
+        heapPops = 0;
+        peakFrontier = 0;
+    }
+
+    private void finish(long startTime, long allocationMark) {
+        modificationCount = graph.getModificationCount();
+        lastStatistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, heapPops, 0, peakFrontier);
+        lastStatistics.setAllocatedSince(allocationMark);
+        lastRepairTime = System.nanoTime() - startTime;
+    }
+}
@@ -0,0 +1,396 @@
+import java.util.PriorityQueue;
+
+/**
+ * Yen's algorithm for the K shortest loopless paths between two cities.
+ * The i-th path is the cheapest candidate that leaves one of the earlier paths
+ * at some spur city. It keeps the earlier path's root up to the spur, then
+ * takes the shortest spur path that avoids the root and the edges the earlier
+ * paths took from that root.
+ *
+ * Each query runs one reverse Dijkstra from the destination, and every spur
+ * search reuses it in two ways:
+ * - If the tree path from the spur city avoids everything that is blocked, it
+ *   is the spur path and no search runs.
+ * - Otherwise the tree distances are exact remaining distances on the unblocked
+ *   graph and a lower bound on the blocked one, so the spur search is an A*
+ *   that heads straight for the destination.
+ * Spurs are taken only from each path's deviation city onwards (Lawler's rule).
+ * Candidates sit in a heap, and a set keyed by path hash keeps duplicates out.
+ * Not thread-safe because of the reused arrays.
+ */
+public class KShortestPathsAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private Graph graph;
+
+    // reused between queries, resized when the graph grows
+    private int[] remaining;      // distance to the destination
+    private int[] nextToDest;     // next city on a shortest path to the destination
+    private IndexedMinHeap reverseHeap;
+    private SearchWorkspace workspace;
+    private int[] blockedCity;    // == blockGeneration: a root city the spur path must avoid
+    private int[] blockedNext;    // == blockGeneration: the spur city must not continue here
+    private int blockGeneration;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long peakFrontier;
+
+    public KShortestPathsAlgorithm(Graph graph) {
+        this.graph = graph;
+    }
+
+    public String getName() {
+        return "Yen K-Shortest";
+    }
+
+    // the single shortest path, so the engine also fits the point-to-point comparisons
+    public PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+        List<PathResult> paths = findKShortestPaths(source, destination, 1);
+        if (paths.isEmpty()) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+        return paths.get(0);
+    }
+
+    /**
+     * Up to k loopless paths in order of distance; fewer if the graph has fewer.
+     * Each result's execution time is the time from the start of the query
+     * until that path was found.
+     */
+    public List<PathResult> findKShortestPaths(String source, String destination, int k) {
+        long startTime = System.nanoTime();
+        List<PathResult> results = new List<>();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+        if (sourceIndex == -1 || destIndex == -1 || k < 1) {
+            return results;
+        }
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            results.add(new PathResult(path, 0, endTime - startTime));
+            return results;
+        }
+
+        graph.enableReverseAdjacency();
+        graph.freeze();
+        prepare(graph.getNumCities());
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 0;
+        peakFrontier = 0;
+
+        reverseTree(destIndex);
+        if (remaining[sourceIndex] == INF) {
+            return results;
+        }
+
+        DynamicArray<Candidate> accepted = new DynamicArray<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        PathSet seen = new PathSet();
+        Candidate first = treePath(sourceIndex, destIndex, 0, 0);
+        candidates.add(first);
+        seen.add(first);
+
+        while (!candidates.isEmpty() && accepted.size() < k) {
+            Candidate path = candidates.poll();
+            accepted.add(path);
+            results.add(toResult(path, startTime));
+            if (accepted.size() == k) {
+                break;
+            }
+
+            for (int i = path.deviation; i < path.nodes.length - 1; i++) {
+                Candidate spurPath = spur(path, i, accepted, destIndex);
+                if (spurPath != null && seen.add(spurPath)) {
+                    candidates.add(spurPath);
+                }
+            }
+        }
+        return results;
+    }
+
+    // statistics of the spur searches of the last query
+    public SearchStatistics getLastStatistics() {
+        return new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled, 0, peakFrontier);
+    }
+
+    // the candidate that keeps path's first i + 1 cities and deviates at city i, or null
+    private Candidate spur(Candidate path, int i, DynamicArray<Candidate> accepted, int destIndex) {
+        int spurCity = path.nodes[i];
+        blockGeneration++;
+        for (int j = 0; j < i; j++) {
+            blockedCity[path.nodes[j]] = blockGeneration;
+        }
+        for (int p = 0; p < accepted.size(); p++) {
+            Candidate other = accepted.get(p);
+            if (other.nodes.length > i + 1 && sharesRoot(other, path, i)) {
+                blockedNext[other.nodes[i + 1]] = blockGeneration;
+            }
+        }
+
+        Candidate tail = treePathIfFree(spurCity, destIndex);
+        if (tail == null) {
+            tail = searchSpur(spurCity, destIndex);
+        }
+        if (tail == null) {
+            return null;
+        }
+
+        // root cities 0 .. i, then the tail without its first city (the spur itself)
+        int length = i + tail.nodes.length;
+        int[] nodes = new int[length];
+        int[] dist = new int[length];
+        System.arraycopy(path.nodes, 0, nodes, 0, i + 1);
+        System.arraycopy(path.dist, 0, dist, 0, i + 1);
+        for (int j = 1; j < tail.nodes.length; j++) {
+            nodes[i + j] = tail.nodes[j];
+            dist[i + j] = path.dist[i] + tail.dist[j];
+        }
+        return new Candidate(nodes, dist, i);
+    }
+
+    private static boolean sharesRoot(Candidate a, Candidate b, int i) {
+        for (int j = 0; j <= i; j++) {
+            if (a.nodes[j] != b.nodes[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the reverse tree path from the spur city, if nothing on it is blocked
+    private Candidate treePathIfFree(int spurCity, int destIndex) {
+        if (remaining[spurCity] == INF || blockedNext[nextToDest[spurCity]] == blockGeneration) {
+            return null;
+        }
+        int node = spurCity;
+        while (node != destIndex) {
+            node = nextToDest[node];
+            if (blockedCity[node] == blockGeneration) {
+                return null;
+            }
+        }
+        return treePath(spurCity, destIndex, 0, 0);
+    }
+
+    // cities from `from` to the destination along the reverse tree, distances starting at startDist
+    private Candidate treePath(int from, int destIndex, int startDist, int deviation) {
+        int length = 1;
+        for (int node = from; node != destIndex; node = nextToDest[node]) {
+            length++;
+        }
+        int[] nodes = new int[length];
+        int[] dist = new int[length];
+        int node = from;
+        for (int j = 0; j < length; j++) {
+            nodes[j] = node;
+            // remaining distances fall by exactly one edge weight per tree step
+            dist[j] = startDist + remaining[from] - remaining[node];
+            if (node != destIndex) {
+                node = nextToDest[node];
+            }
+        }
+        return new Candidate(nodes, dist, deviation);
+    }
+
+    // A* from the spur city with the reverse tree distances as potentials
+    private Candidate searchSpur(int spurCity, int destIndex) {
+        workspace.begin();
+        IndexedMinHeap heap = workspace.getHeap();
+        workspace.setLabel(spurCity, 0, -1);
+        heap.insert(spurCity, remaining[spurCity] == INF ? 0 : remaining[spurCity]);
+        heapPushes++;
+        peakFrontier = Math.max(peakFrontier, 1);
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+            int currentDist = workspace.getDistance(u);
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                if (remaining[v] == INF || blockedCity[v] == blockGeneration
+                        || (u == spurCity && blockedNext[v] == blockGeneration)) {
+                    continue;
+                }
+                int newDist = currentDist + graph.getEdgeWeight(e);
+                if (newDist < workspace.getDistance(v)) {
+                    workspace.setLabel(v, newDist, u);
+                    heap.insertOrDecrease(v, newDist + remaining[v]);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+
+        if (!workspace.isVisited(destIndex)) {
+            return null;
+        }
+        int length = 0;
+        for (int node = destIndex; node != -1; node = workspace.getParent(node)) {
+            length++;
+        }
+        int[] nodes = new int[length];
+        int[] dist = new int[length];
+        int node = destIndex;
+        for (int j = length - 1; j >= 0; j--) {
+            nodes[j] = node;
+            dist[j] = workspace.getDistance(node);
+            node = workspace.getParent(node);
+        }
+        return new Candidate(nodes, dist, 0);
+    }
+
+    // Dijkstra over the reverse edges, remembering each city's next hop to the destination
+    private void reverseTree(int destIndex) {
+        int numCities = remaining.length;
+        for (int i = 0; i < numCities; i++) {
+            remaining[i] = INF;
+            nextToDest[i] = -1;
+        }
+        remaining[destIndex] = 0;
+        reverseHeap.insert(destIndex, 0);
+        while (!reverseHeap.isEmpty()) {
+            int v = reverseHeap.pollMin();
+            int currentDist = remaining[v];
+            for (int e = graph.getReverseEdgeStart(v); e < graph.getReverseEdgeEnd(v); e++) {
+                int u = graph.getReverseEdgeSource(e);
+                int newDist = currentDist + graph.getReverseEdgeWeight(e);
+                if (newDist < remaining[u]) {
+                    remaining[u] = newDist;
+                    nextToDest[u] = v;
+                    reverseHeap.insertOrDecrease(u, newDist);
+                }
+            }
+        }
+    }
+
+    private PathResult toResult(Candidate candidate, long startTime) {
+        List<String> path = new List<>();
+        for (int j = candidate.nodes.length - 1; j >= 0; j--) {
+            path.add(0, graph.getCityName(candidate.nodes[j]));
+        }
+        long endTime = System.nanoTime();
+        return new PathResult(path, candidate.getDistance(), endTime - startTime);
+    }
+
+    private void prepare(int numCities) {
+        if (remaining == null || remaining.length != numCities) {
+            remaining = new int[numCities];
+            nextToDest = new int[numCities];
+            reverseHeap = new IndexedMinHeap(numCities);
+            workspace = new SearchWorkspace(numCities);
+            blockedCity = new int[numCities];
+            blockedNext = new int[numCities];
+            blockGeneration = 0;
+        }
+    }
+
+    // a complete source -> destination path with the distance reached at every city
+    private static class Candidate implements Comparable<Candidate> {
+        final int[] nodes;
+        final int[] dist;
+        final int deviation;  // first city where this path may still branch off
+        final int hash;
+
+        Candidate(int[] nodes, int[] dist, int deviation) {
+            this.nodes = nodes;
+            this.dist = dist;
+            this.deviation = deviation;
+            int h = 1;
+            for (int node : nodes) {
+                h = 31 * h + node;
+            }
+            this.hash = h;
+        }
+
+        int getDistance() {
+            return dist[dist.length - 1];
+        }
+
+        boolean samePath(Candidate other) {
+            if (hash != other.hash || nodes.length != other.nodes.length) {
+                return false;
+            }
+            for (int j = 0; j < nodes.length; j++) {
+                if (nodes[j] != other.nodes[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // by distance, then fewer cities, then city indices, so the order is deterministic
+        public int compareTo(Candidate other) {
+            int byDistance = Integer.compare(getDistance(), other.getDistance());
+            if (byDistance != 0) {
+                return byDistance;
+            }
+            if (nodes.length != other.nodes.length) {
+                return Integer.compare(nodes.length, other.nodes.length);
+            }
+            for (int j = 0; j < nodes.length; j++) {
+                if (nodes[j] != other.nodes[j]) {
+                    return Integer.compare(nodes[j], other.nodes[j]);
+                }
+            }
+            return 0;
+        }
+    }
+
+    // open addressing set of candidates, compared by hash first and cities second
+    private static class PathSet {
+        private Candidate[] table = new Candidate[16];
+        private int size = 0;
+
+        // false if an equal path is already in the set
+        boolean add(Candidate candidate) {
+            if (size * 2 >= table.length) {
+                grow();
+            }
+            int mask = table.length - 1;
+            int position = mix(candidate.hash) & mask;
+            while (table[position] != null) {
+                if (table[position].samePath(candidate)) {
+                    return false;
+                }
+                position = (position + 1) & mask;
+            }
+            table[position] = candidate;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            Candidate[] old = table;
+            table = new Candidate[old.length * 2];
+            int mask = table.length - 1;
+            for (Candidate candidate : old) {
+                if (candidate != null) {
+                    int position = mix(candidate.hash) & mask;
+                    while (table[position] != null) {
+                        position = (position + 1) & mask;
+                    }
+                    table[position] = candidate;
+                }
+            }
+        }
+
+        private static int mix(int h) {
+            h *= 0x9E3779B1;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.Random;
+
+/**
+ * Preprocessed landmark distances for ALT lower bounds. For every landmark L it
+ * stores d(L, v) and d(v, L) for all cities. By the triangle inequality
+ * d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L). Both bounds only
+ * use distances measured in the right direction, so they stay admissible on
+ * directed graphs with asymmetric distances. The arrays are laid out city-major
+ * (all landmarks of one city are adjacent), so a bound reads two short runs.
+ * The index is read-only after construction and can be shared between threads.
+ */
+public class LandmarkIndex {
+    public enum Selection {
+        // repeatedly take the city farthest from the landmarks chosen so far
+        FARTHEST,
+        // Goldberg and Werneck's "avoid": grow a landmark where the bounds are weakest
+        AVOID
+    }
+
+    static final int INF = Integer.MAX_VALUE;
+    private static final long SEED = 42;
+
+    private final Graph graph;
+    private final int numCities;
+    private final int modificationCount;
+    private final int count;
+    private final int[] landmarks;
+    private final int[] fromLandmark; // [v * count + i] = d(landmark i, v)
+    private final int[] toLandmark;   // [v * count + i] = d(v, landmark i)
+
+    // preprocessing workspace, dropped after construction
+    private IndexedMinHeap heap;
+    private int[] settleOrder;
+    private int settledCount;
+
+    public LandmarkIndex(Graph graph, int count, Selection selection) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one landmark is needed");
+        }
+        this.graph = graph;
+        graph.enableReverseAdjacency();
+        graph.freeze();
+        this.numCities = graph.getNumCities();
+        this.modificationCount = graph.getModificationCount();
+        if (count > numCities) {
+            count = numCities;
+        }
+        this.count = count;
+        this.landmarks = new int[count];
+        this.fromLandmark = new int[numCities * count];
+        this.toLandmark = new int[numCities * count];
+        this.heap = new IndexedMinHeap(numCities);
+        this.settleOrder = new int[numCities];
+
+        if (selection == Selection.AVOID) {
+            selectAvoid();
+        } else {
+            selectFarthest();
+        }
+        heap = null;
+        settleOrder = null;
+    }
+
+    public int getLandmarkCount() {
+        return count;
+    }
+
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    // false once cities or edges were added, changed or removed after preprocessing
+    public boolean isCurrent() {
+        return graph.getModificationCount() == modificationCount;
+    }
+
+    /**
+     * Lower bound on d(v, target). Returns INF when the landmark distances
+     * prove that v cannot reach target at all.
+     */
+    public int lowerBound(int v, int target) {
+        int best = 0;
+        int vBase = v * count;
+        int tBase = target * count;
+        for (int i = 0; i < count; i++) {
+            int fromV = fromLandmark[vBase + i];
+            int fromT = fromLandmark[tBase + i];
+            if (fromT == INF) {
+                // L reaches v but not target, so v cannot reach target
+                if (fromV != INF) {
+                    return INF;
+                }
+            } else if (fromV != INF && fromT - fromV > best) {
+                best = fromT - fromV;
+            }
+
+            int toV = toLandmark[vBase + i];
+            int toT = toLandmark[tBase + i];
+            if (toV == INF) {
+                // target reaches L but v does not, so v cannot reach target
+                if (toT != INF) {
+                    return INF;
+                }
+            } else if (toT != INF && toV - toT > best) {
+                best = toV - toT;
+            }
+        }
+        return best;
+    }
+
+    private void selectFarthest() {
+        // smallest round trip distance to any chosen landmark, -1 when unreachable
+        long[] score = new long[numCities];
+        int[] forward = new int[numCities];
+        int[] backward = new int[numCities];
+        computeDistances(0, true, forward, null);
+        computeDistances(0, false, backward, null);
+        for (int v = 0; v < numCities; v++) {
+            score[v] = roundTrip(forward[v], backward[v]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int next = 0;
+            for (int v = 1; v < numCities; v++) {
+                if (score[v] > score[next]) {
+                    next = v;
+                }
+            }
+            addLandmark(i, next);
+            for (int v = 0; v < numCities; v++) {
+                long trip = roundTrip(fromLandmark[v * count + i], toLandmark[v * count + i]);
+                if (trip != -1 && (score[v] == -1 || trip < score[v])) {
+                    score[v] = trip;
+                }
+            }
+            score[next] = -2;
+        }
+    }
+
+    private void selectAvoid() {
+        Random random = new Random(SEED);
+        boolean[] isLandmark = new boolean[numCities];
+        int[] dist = new int[numCities];
+        int[] parent = new int[numCities];
+        long[] size = new long[numCities];
+        boolean[] covered = new boolean[numCities];
+
+        for (int i = 0; i < count; i++) {
+            int root = random.nextInt(numCities);
+            computeDistances(root, true, dist, parent);
+
+            // weight: how far the current bounds fall short of d(root, v)
+            for (int v = 0; v < numCities; v++) {
+                size[v] = 0;
+                covered[v] = false;
+            }
+            for (int j = settledCount - 1; j >= 0; j--) {
+                int v = settleOrder[j];
+                if (isLandmark[v]) {
+                    covered[v] = true;
+                }
+                if (covered[v]) {
+                    size[v] = 0;
+                    if (parent[v] != -1) {
+                        covered[parent[v]] = true;
+                    }
+                    continue;
+                }
+                size[v] += dist[v] - bound(root, v, i);
+                if (parent[v] != -1) {
+                    size[parent[v]] += size[v];
+                }
+            }
+
+            // walk down the heaviest uncovered subtree to a leaf
+            int node = root;
+            while (true) {
+                int bestChild = -1;
+                int end = graph.getEdgeEnd(node);
+                for (int e = graph.getEdgeStart(node); e < end; e++) {
+                    int child = graph.getEdgeTarget(e);
+                    if (parent[child] == node && size[child] > 0
+                            && (bestChild == -1 || size[child] > size[bestChild])) {
+                        bestChild = child;
+                    }
+                }
+                if (bestChild == -1) {
+                    break;
+                }
+                node = bestChild;
+            }
+
+            if (isLandmark[node]) {
+                // every subtree is covered already, fall back to an unused city
+                node = -1;
+                for (int j = settledCount - 1; j >= 0 && node == -1; j--) {
+                    if (!isLandmark[settleOrder[j]]) {
+                        node = settleOrder[j];
+                    }
+                }
+                for (int v = 0; v < numCities && node == -1; v++) {
+                    if (!isLandmark[v]) {
+                        node = v;
+                    }
+                }
+            }
+            isLandmark[node] = true;
+            addLandmark(i, node);
+        }
+    }
+
+    // lower bound on d(from, to) from the first `used` landmarks
+    private int bound(int from, int to, int used) {
+        int best = 0;
+        for (int i = 0; i < used; i++) {
+            int a = fromLandmark[from * count + i];
+            int b = fromLandmark[to * count + i];
+            if (a != INF && b != INF && b - a > best) {
+                best = b - a;
+            }
+            int c = toLandmark[from * count + i];
+            int d = toLandmark[to * count + i];
+            if (c != INF && d != INF && c - d > best) {
+                best = c - d;
+            }
+        }
+        return best;
+    }
+
+    private void addLandmark(int i, int city) {
+        landmarks[i] = city;
+        int[] dist = new int[numCities];
+        computeDistances(city, true, dist, null);
+        for (int v = 0; v < numCities; v++) {
+            fromLandmark[v * count + i] = dist[v];
+        }
+        computeDistances(city, false, dist, null);
+        for (int v = 0; v < numCities; v++) {
+            toLandmark[v * count + i] = dist[v];
+        }
+    }
+
+    private static long roundTrip(int there, int back) {
+        if (there == INF || back == INF) {
+            return -1;
+        }
+        return (long) there + back;
+    }
+
+    // full Dijkstra over outgoing (forward) or incoming edges, records the settle order
+    private void computeDistances(int source, boolean forward, int[] dist, int[] parent) {
+        for (int v = 0; v < numCities; v++) {
+            dist[v] = INF;
+            if (parent != null) {
+                parent[v] = -1;
+            }
+        }
+        settledCount = 0;
+        dist[source] = 0;
+        heap.insert(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            settleOrder[settledCount] = u;
+            settledCount++;
+            int start = forward ? graph.getEdgeStart(u) : graph.getReverseEdgeStart(u);
+            int end = forward ? graph.getEdgeEnd(u) : graph.getReverseEdgeEnd(u);
+            for (int e = start; e < end; e++) {
+                int v = forward ? graph.getEdgeTarget(e) : graph.getReverseEdgeSource(e);
+                int w = forward ? graph.getEdgeWeight(e) : graph.getReverseEdgeWeight(e);
+                int newDist = dist[u] + w;
+                if (newDist < dist[v]) {
+                    dist[v] = newDist;
+                    if (parent != null) {
+                        parent[v] = u;
+                    }
+                    heap.insertOrDecrease(v, newDist);
+                }
+            }
+        }
+    }
+}
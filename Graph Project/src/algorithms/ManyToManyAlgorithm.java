@@ -0,0 +1,224 @@
+/**
+ * Distance table between a set of sources and a set of targets with
+ * |S| + |T| upward searches on a ContractionHierarchy, instead of |S| x |T|
+ * point-to-point queries.
+ *
+ * Every shortest path s -> t climbs to a highest city and then descends. First
+ * a backward upward search from each target leaves an entry (target, distance)
+ * in the bucket of every city it settles. Then a forward upward search from
+ * each source scans the buckets of the cities it settles, and each entry closes
+ * a candidate route. The best candidate for each pair is its distance.
+ * Not thread-safe; use one instance per thread over a shared hierarchy.
+ */
+public class ManyToManyAlgorithm {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private ContractionHierarchy hierarchy;
+    private Graph graph;
+
+    private int[] dist;
+    private IndexedMinHeap heap;
+    private IntList settled;   // cities settled and not stalled by the last search
+    private IntList touched;   // cities whose dist must be reset afterwards
+
+    // buckets in CSR form: entries of city v are bucketOffsets[v] .. bucketOffsets[v + 1] - 1
+    private int[] bucketOffsets;
+    private int[] bucketTarget;
+    private int[] bucketDist;
+
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long stalledNodes;
+    private long peakFrontier;
+    private long executionTime;
+
+    public ManyToManyAlgorithm(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.graph = hierarchy.getGraph();
+        this.settled = new IntList();
+        this.touched = new IntList();
+    }
+
+    /**
+     * Row-major |sources| x |targets| table: entry i * targets.length + j is the
+     * distance from sources[i] to targets[j], Integer.MAX_VALUE if unreachable.
+     */
+    public int[] computeTable(String[] sources, String[] targets) {
+        return computeTable(resolve(sources), resolve(targets));
+    }
+
+    public int[] computeTable(int[] sources, int[] targets) {
+        long startTime = System.nanoTime();
+        if (!hierarchy.isCurrent()) {
+            throw new IllegalStateException("Contraction hierarchy is out of date, rebuild it after changing the graph");
+        }
+        prepare(hierarchy.getNumCities());
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPushes = 0;
+        stalledNodes = 0;
+        peakFrontier = 0;
+
+        fillBuckets(targets);
+
+        int[] table = new int[sources.length * targets.length];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = INF;
+        }
+        for (int i = 0; i < sources.length; i++) {
+            int row = i * targets.length;
+            upwardSearch(sources[i], true);
+            for (int k = 0; k < settled.size(); k++) {
+                int u = settled.get(k);
+                int toU = dist[u];
+                for (int b = bucketOffsets[u]; b < bucketOffsets[u + 1]; b++) {
+                    long total = (long) toU + bucketDist[b];
+                    int cell = row + bucketTarget[b];
+                    if (total < table[cell]) {
+                        table[cell] = (int) total;
+                    }
+                }
+            }
+            resetSearch();
+        }
+
+        long endTime = System.nanoTime();
+        executionTime = endTime - startTime;
+        return table;
+    }
+
+    // work of the last computeTable call, summed over all searches
+    public SearchStatistics getLastStatistics() {
+        // stalled cities are popped but not expanded, so they are reported as stale pops
+        return new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, nodesSettled, stalledNodes, peakFrontier);
+    }
+
+    public long getLastExecutionTime() {
+        return executionTime;
+    }
+
+    private int[] resolve(String[] names) {
+        int[] indices = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indices[i] = graph.getCityIndex(names[i]);
+            if (indices[i] == -1) {
+                throw new IllegalArgumentException("Unknown city: " + names[i]);
+            }
+        }
+        return indices;
+    }
+
+    // backward searches from every target, then a counting sort of the entries by city
+    private void fillBuckets(int[] targets) {
+        int numCities = hierarchy.getNumCities();
+        IntList entryCity = new IntList();
+        IntList entryTarget = new IntList();
+        IntList entryDist = new IntList();
+        for (int j = 0; j < targets.length; j++) {
+            upwardSearch(targets[j], false);
+            for (int k = 0; k < settled.size(); k++) {
+                int v = settled.get(k);
+                entryCity.add(v);
+                entryTarget.add(j);
+                entryDist.add(dist[v]);
+            }
+            resetSearch();
+        }
+
+        bucketOffsets = new int[numCities + 1];
+        for (int i = 0; i < entryCity.size(); i++) {
+            bucketOffsets[entryCity.get(i) + 1]++;
+        }
+        for (int v = 0; v < numCities; v++) {
+            bucketOffsets[v + 1] += bucketOffsets[v];
+        }
+        bucketTarget = new int[entryCity.size()];
+        bucketDist = new int[entryCity.size()];
+        int[] fill = new int[numCities];
+        for (int i = 0; i < entryCity.size(); i++) {
+            int v = entryCity.get(i);
+            int slot = bucketOffsets[v] + fill[v];
+            fill[v]++;
+            bucketTarget[slot] = entryTarget.get(i);
+            bucketDist[slot] = entryDist.get(i);
+        }
+    }
+
+    /**
+     * Exhaustive search that only moves to higher ranked cities: over up edges
+     * when forward, over down edges when backward. Stalled cities are settled
+     * but neither expanded nor reported, since their label is not a shortest distance.
+     */
+    private void upwardSearch(int start, boolean forward) {
+        settled.clear();
+        dist[start] = 0;
+        touched.add(start);
+        heap.insert(start, 0);
+        heapPushes++;
+        peakFrontier = Math.max(peakFrontier, 1);
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            nodesSettled++;
+            int currentDist = dist[u];
+            if (isStalled(u, currentDist, forward)) {
+                stalledNodes++;
+                continue;
+            }
+            settled.add(u);
+
+            int begin = forward ? hierarchy.getUpEdgeStart(u) : hierarchy.getDownEdgeStart(u);
+            int end = forward ? hierarchy.getUpEdgeEnd(u) : hierarchy.getDownEdgeEnd(u);
+            edgesRelaxed += end - begin;
+            for (int e = begin; e < end; e++) {
+                int v = forward ? hierarchy.getUpEdgeTarget(e) : hierarchy.getDownEdgeSource(e);
+                int w = forward ? hierarchy.getUpEdgeWeight(e) : hierarchy.getDownEdgeWeight(e);
+                int newDist = currentDist + w;
+                if (newDist < dist[v]) {
+                    if (dist[v] == INF) {
+                        touched.add(v);
+                    }
+                    dist[v] = newDist;
+                    heap.insertOrDecrease(v, newDist);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+    }
+
+    // a higher city reaches u more cheaply through the edges the search does not use
+    private boolean isStalled(int u, int currentDist, boolean forward) {
+        int begin = forward ? hierarchy.getDownEdgeStart(u) : hierarchy.getUpEdgeStart(u);
+        int end = forward ? hierarchy.getDownEdgeEnd(u) : hierarchy.getUpEdgeEnd(u);
+        for (int e = begin; e < end; e++) {
+            int higher = forward ? hierarchy.getDownEdgeSource(e) : hierarchy.getUpEdgeTarget(e);
+            int w = forward ? hierarchy.getDownEdgeWeight(e) : hierarchy.getUpEdgeWeight(e);
+            if (dist[higher] != INF && (long) dist[higher] + w < currentDist) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // O(touched) instead of O(V)
+    private void resetSearch() {
+        for (int i = 0; i < touched.size(); i++) {
+            dist[touched.get(i)] = INF;
+        }
+        touched.clear();
+    }
+
+    private void prepare(int numCities) {
+        if (dist == null || dist.length != numCities) {
+            dist = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+            for (int i = 0; i < numCities; i++) {
+                dist[i] = INF;
+            }
+        }
+    }
+}
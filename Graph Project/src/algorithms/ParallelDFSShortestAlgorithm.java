@@ -0,0 +1,357 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel version of the DFSShortestAlgorithm branch-and-bound. The top
+ * levels of the search tree are expanded sequentially into prefixes, until
+ * there are about TASKS_PER_THREAD prefixes per ForkJoin worker. Each prefix is
+ * then searched as its own task, and idle workers steal the remaining ones.
+ *
+ * All tasks prune against one incumbent shared in an AtomicLong. It packs the
+ * best distance in the high 32 bits and the finding task's ordinal in the low
+ * 32 bits. Ordinals follow DFSShortestAlgorithm's tie-break order, the one
+ * in which the plain stack-based DFS visits the prefixes (descending edge
+ * index), so the smallest packed value is the shortest path, and ties go to
+ * the earliest task. Within a task, ties use the same edge-by-edge rule as the
+ * sequential search. The result is always the path DFSShortestAlgorithm returns,
+ * whatever the thread count or scheduling.
+ * Queries on one instance run one at a time; the parallelism is within a query.
+ */
+public class ParallelDFSShortestAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int TASKS_PER_THREAD = 16;
+    // ordinal of the seeded incumbent, which every real task beats on a tie
+    private static final int NO_TASK = Integer.MAX_VALUE;
+
+    private static final int EQUAL = 0;
+    private static final int BEFORE = 1;
+    private static final int AFTER = 2;
+
+    private Graph graph;
+    private int[] remaining;
+    private IndexedMinHeap heap;
+    private int[] edgeOrder;
+    private ThreadLocal<Worker> workers;
+
+    // state of the query in progress, read by the tasks
+    private int destIndex;
+    private AtomicLong incumbent;
+    private DynamicArray<int[]> prefixNodes;
+    private DynamicArray<int[]> prefixEdges;
+    private IntList prefixDist;
+    private int[][] taskBestNodes;
+
+    public ParallelDFSShortestAlgorithm(Graph graph) {
+        this.graph = graph;
+        this.workers = new ThreadLocal<>();
+    }
+
+    public String getName() {
+        return "Parallel DFS-Shortest";
+    }
+
+    public synchronized PathResult findShortestPath(String source, String destination) {
+        long startTime = System.nanoTime();
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        graph.enableReverseAdjacency();
+        graph.freeze();
+        int numCities = graph.getNumCities();
+        if (remaining == null || remaining.length != numCities) {
+            remaining = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+        }
+        if (edgeOrder == null || edgeOrder.length != graph.getNumEdges()) {
+            edgeOrder = new int[graph.getNumEdges()];
+        }
+
+        DFSShortestAlgorithm.computeRemaining(graph, destIndex, remaining, heap);
+        if (remaining[sourceIndex] == INF) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, new SearchStatistics(0, 0));
+        }
+        DFSShortestAlgorithm.sortEdges(graph, remaining, edgeOrder);
+
+        this.destIndex = destIndex;
+        // h(source) is already the optimum, so tasks with a poor prefix prune right away
+        this.incumbent = new AtomicLong(((long) remaining[sourceIndex] << 32) | NO_TASK);
+        split(sourceIndex, ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD);
+
+        int tasks = prefixNodes.size();
+        taskBestNodes = new int[tasks][];
+        SearchStatistics[] taskStatistics = new SearchStatistics[tasks];
+        ParallelRange.forEach(0, tasks, 1, (from, to) -> {
+            Worker worker = workers.get();
+            if (worker == null || worker.capacity() != numCities) {
+                worker = new Worker(numCities);
+                workers.set(worker);
+            }
+            for (int t = from; t < to; t++) {
+                worker.run(t);
+                // the path stack is the frontier: pushes enter a city, pops backtrack from one
+                taskStatistics[t] = new SearchStatistics(worker.nodesSettled, worker.edgesRelaxed,
+                        worker.nodesSettled, worker.backtracks, 0, worker.maxDepth);
+            }
+        });
+        SearchStatistics statistics = new SearchStatistics();
+        for (int t = 0; t < tasks; t++) {
+            statistics.add(taskStatistics[t]);
+        }
+        long best = incumbent.get();
+        long endTime = System.nanoTime();
+        if ((int) best == NO_TASK) {
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        int[] bestNodes = taskBestNodes[(int) best];
+        List<String> bestPath = new List<>();
+        for (int i = bestNodes.length - 1; i >= 0; i--) {
+            bestPath.add(0, graph.getCityName(bestNodes[i]));
+        }
+        return new PathResult(bestPath, (int) (best >>> 32), endTime - startTime, statistics);
+    }
+
+    /**
+     * Expands prefixes level by level until there are enough for the pool.
+     * Children are listed by descending edge index. The sequential search tries
+     * edges cheapest w + h first, but breaks ties between equally short paths
+     * by descending edge index, so list position equals tie-break order.
+     * Prefixes that already end at the destination stay in the list as
+     * finished tasks, and prefixes that cannot reach the optimum h(source) are
+     * dropped.
+     */
+    private void split(int sourceIndex, int target) {
+        long optimum = remaining[sourceIndex];
+        prefixNodes = new DynamicArray<>();
+        prefixEdges = new DynamicArray<>();
+        prefixDist = new IntList();
+        prefixNodes.add(new int[] {sourceIndex});
+        prefixEdges.add(new int[0]);
+        prefixDist.add(0);
+
+        boolean grew = true;
+        while (grew && prefixNodes.size() < target) {
+            grew = false;
+            DynamicArray<int[]> nextNodes = new DynamicArray<>();
+            DynamicArray<int[]> nextEdges = new DynamicArray<>();
+            IntList nextDist = new IntList();
+            for (int p = 0; p < prefixNodes.size(); p++) {
+                int[] nodes = prefixNodes.get(p);
+                int[] edges = prefixEdges.get(p);
+                int u = nodes[nodes.length - 1];
+                if (u == destIndex) {
+                    nextNodes.add(nodes);
+                    nextEdges.add(edges);
+                    nextDist.add(prefixDist.get(p));
+                    continue;
+                }
+                for (int e = graph.getEdgeEnd(u) - 1; e >= graph.getEdgeStart(u); e--) {
+                    int v = graph.getEdgeTarget(e);
+                    if (remaining[v] == INF || contains(nodes, v)) {
+                        continue;
+                    }
+                    int childDist = prefixDist.get(p) + graph.getEdgeWeight(e);
+                    if ((long) childDist + remaining[v] > optimum) {
+                        continue;
+                    }
+                    int[] childNodes = new int[nodes.length + 1];
+                    int[] childEdges = new int[edges.length + 1];
+                    System.arraycopy(nodes, 0, childNodes, 0, nodes.length);
+                    System.arraycopy(edges, 0, childEdges, 0, edges.length);
+                    childNodes[nodes.length] = v;
+                    childEdges[edges.length] = e;
+                    nextNodes.add(childNodes);
+                    nextEdges.add(childEdges);
+                    nextDist.add(childDist);
+                    grew = true;
+                }
+            }
+            prefixNodes = nextNodes;
+            prefixEdges = nextEdges;
+            prefixDist = nextDist;
+        }
+    }
+
+    private static boolean contains(int[] nodes, int v) {
+        for (int node : nodes) {
+            if (node == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // lowers the shared incumbent to (distance, task) unless it already holds a smaller value
+    private void offer(int distance, int task) {
+        long packed = ((long) distance << 32) | task;
+        long current = incumbent.get();
+        while (packed < current && !incumbent.compareAndSet(current, packed)) {
+            current = incumbent.get();
+        }
+    }
+
+    // search state of one worker thread, reused for every task it runs
+    private class Worker {
+        private final int[] pathNodes;
+        private final int[] pathEdges;
+        private final int[] pathDist;
+        private final int[] cursor;
+        private final int[] compare;
+        private final BitSet onPath;
+        private final int[] bestNodes;
+        private final int[] bestEdges;
+        private int bestLength;
+        private int bestDistance;
+        long nodesSettled;
+        long edgesRelaxed;
+        long backtracks;
+        int maxDepth;
+
+        Worker(int numCities) {
+            this.pathNodes = new int[numCities];
+            this.pathEdges = new int[numCities];
+            this.pathDist = new int[numCities];
+            this.cursor = new int[numCities];
+            this.compare = new int[numCities];
+            this.onPath = new BitSet(numCities);
+            this.bestNodes = new int[numCities];
+            this.bestEdges = new int[numCities];
+        }
+
+        int capacity() {
+            return pathNodes.length;
+        }
+
+        void run(int task) {
+            nodesSettled = 0;
+            edgesRelaxed = 0;
+            backtracks = 0;
+            maxDepth = 0;
+            bestLength = 0;
+            bestDistance = INF;
+
+            int[] nodes = prefixNodes.get(task);
+            int[] edges = prefixEdges.get(task);
+            int floor = nodes.length - 1;
+            int distance = prefixDist.get(task);
+            if (nodes[floor] == destIndex) {
+                taskBestNodes[task] = nodes;
+                offer(distance, task);
+                return;
+            }
+            if ((long) distance + remaining[nodes[floor]] > (incumbent.get() >>> 32)) {
+                return;
+            }
+
+            for (int i = 0; i <= floor; i++) {
+                pathNodes[i] = nodes[i];
+                onPath.set(nodes[i]);
+            }
+            System.arraycopy(edges, 0, pathEdges, 0, edges.length);
+            pathDist[floor] = distance;
+            compare[floor] = EQUAL;
+            cursor[floor] = graph.getEdgeStart(nodes[floor]);
+            search(task, floor);
+            for (int i = 0; i < floor; i++) {
+                onPath.clear(nodes[i]);
+            }
+
+            if (bestLength > 0) {
+                int[] path = new int[bestLength];
+                System.arraycopy(bestNodes, 0, path, 0, bestLength);
+                taskBestNodes[task] = path;
+                offer(bestDistance, task);
+            }
+        }
+
+        // DFSShortestAlgorithm's loop below depth `floor`, pruning against the shared incumbent
+        private void search(int task, int floor) {
+            int depth = floor;
+            while (depth >= floor) {
+                int u = pathNodes[depth];
+                if (cursor[depth] == graph.getEdgeEnd(u)) {
+                    onPath.clear(u);
+                    depth--;
+                    backtracks++;
+                    continue;
+                }
+                int e = edgeOrder[cursor[depth]];
+                cursor[depth]++;
+                edgesRelaxed++;
+
+                int v = graph.getEdgeTarget(e);
+                if (onPath.get(v) || remaining[v] == INF) {
+                    continue;
+                }
+                int newDistance = pathDist[depth] + graph.getEdgeWeight(e);
+                long bound = (long) newDistance + remaining[v];
+
+                long shared = incumbent.get();
+                long sharedDistance = shared >>> 32;
+                int sharedTask = (int) shared;
+                if (bound > sharedDistance || bound > bestDistance) {
+                    continue;
+                }
+                int order = compare[depth];
+                if (order == EQUAL && bestLength > 0) {
+                    int bestEdge = bestEdges[depth];
+                    order = e > bestEdge ? BEFORE : (e < bestEdge ? AFTER : EQUAL);
+                }
+                // ties: an earlier task wins outright, within this task the legacy DFS order decides
+                if (bound == sharedDistance && sharedTask < task) {
+                    continue;
+                }
+                if (bound == bestDistance && order == AFTER) {
+                    continue;
+                }
+
+                if (v == destIndex) {
+                    if (newDistance < bestDistance || order == BEFORE) {
+                        recordBest(depth, e, v, newDistance);
+                        // publish early so the other tasks prune with it
+                        offer(newDistance, task);
+                    }
+                    continue;
+                }
+
+                nodesSettled++;
+                depth++;
+                if (depth > maxDepth) {
+                    maxDepth = depth;
+                }
+                pathNodes[depth] = v;
+                pathEdges[depth - 1] = e;
+                pathDist[depth] = newDistance;
+                compare[depth] = order;
+                cursor[depth] = graph.getEdgeStart(v);
+                onPath.set(v);
+            }
+        }
+
+        private void recordBest(int depth, int lastEdge, int dest, int distance) {
+            for (int i = 0; i <= depth; i++) {
+                bestNodes[i] = pathNodes[i];
+                bestEdges[i] = pathEdges[i];
+                compare[i] = EQUAL;
+            }
+            bestEdges[depth] = lastEdge;
+            bestNodes[depth + 1] = dest;
+            bestLength = depth + 2;
+            bestDistance = distance;
+        }
+    }
+}
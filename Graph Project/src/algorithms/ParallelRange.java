@@ -0,0 +1,55 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// splits an index range into chunks and runs them on the common ForkJoin pool
+public class ParallelRange {
+    public interface Body {
+        void run(int from, int to);
+    }
+
+    private ParallelRange() {
+    }
+
+    /**
+     * Runs body over [from, to) in chunks of at most grain indices. Chunks run
+     * concurrently, so the body must only write state owned by its own indices.
+     */
+    public static void forEach(int from, int to, int grain, Body body) {
+        if (to <= from) {
+            return;
+        }
+        if (grain < 1) {
+            grain = 1;
+        }
+        if (to - from <= grain) {
+            body.run(from, to);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new RangeTask(from, to, grain, body));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final Body body;
+
+        RangeTask(int from, int to, int grain, Body body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, grain, body), new RangeTask(mid, to, grain, body));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Bounded least-recently-used cache of path results, keyed by
+ * (source index, destination index, engine name). A few hundred popular pairs
+ * make up most queries, so a small cache in front of the engines answers them
+ * without searching.
+ *
+ * Entries live in fixed slot arrays linked into a recency list, and an open
+ * addressing table maps keys to slots. A full cache reuses the slot of the
+ * least recently used entry, so it allocates nothing after warm-up. The whole
+ * cache is dropped as soon as Graph.getModificationCount() changes.
+ *
+ * Hits return PathResult.asCached(): the original compute time with
+ * isFromCache() set. The path list is shared with the cached entry, so callers
+ * must not modify it. All methods are synchronized; the wrapped engines
+ * themselves still need one instance per thread.
+ */
+public class PathCache {
+    private static final int EMPTY = -1;
+
+    private final Graph graph;
+    private final int capacity;
+    private int version;
+
+    // slot -> key, value and recency links
+    private final int[] keySource;
+    private final int[] keyDest;
+    private final int[] keyAlgorithm;
+    private final PathResult[] values;
+    private final int[] newer;
+    private final int[] older;
+    private int newest;
+    private int oldest;
+    private int size;
+
+    // open addressing table: hash position -> slot, EMPTY when free
+    private final int[] table;
+    private final int mask;
+
+    // engine names, position = algorithm id in the key
+    private final DynamicArray<String> algorithms;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PathCache(Graph graph, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.graph = graph;
+        this.capacity = capacity;
+        this.version = graph.getModificationCount();
+        this.keySource = new int[capacity];
+        this.keyDest = new int[capacity];
+        this.keyAlgorithm = new int[capacity];
+        this.values = new PathResult[capacity];
+        this.newer = new int[capacity];
+        this.older = new int[capacity];
+        this.algorithms = new DynamicArray<>();
+
+        // at most half full, so probe sequences stay short
+        int tableSize = 1;
+        while (tableSize < capacity * 2) {
+            tableSize *= 2;
+        }
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+        reset();
+    }
+
+    /**
+     * Answers from the cache when possible, otherwise runs the engine and
+     * stores the result. Unknown city names go straight to the engine.
+     */
+    public PathResult findShortestPath(ShortestPathEngine engine, String source, String destination) {
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+        if (sourceIndex == -1 || destIndex == -1) {
+            return engine.findShortestPath(source, destination);
+        }
+
+        String algorithm = engine.getName();
+        PathResult cached = get(algorithm, sourceIndex, destIndex);
+        if (cached != null) {
+            return cached;
+        }
+        int versionBefore = graph.getModificationCount();
+        PathResult result = engine.findShortestPath(source, destination);
+        // a result computed while the graph changed may already be stale
+        if (graph.getModificationCount() == versionBefore) {
+            put(algorithm, sourceIndex, destIndex, result);
+        }
+        return result;
+    }
+
+    // the engine behind this cache, usable wherever a ShortestPathEngine is expected
+    public ShortestPathEngine wrap(ShortestPathEngine engine) {
+        return new ShortestPathEngine() {
+            public PathResult findShortestPath(String source, String destination) {
+                return PathCache.this.findShortestPath(engine, source, destination);
+            }
+
+            public String getName() {
+                return engine.getName();
+            }
+        };
+    }
+
+    // cached result marked with isFromCache(), or null on a miss
+    public synchronized PathResult get(String algorithm, int sourceIndex, int destIndex) {
+        checkVersion();
+        int slot = find(algorithmId(algorithm), sourceIndex, destIndex);
+        if (slot == EMPTY) {
+            misses++;
+            return null;
+        }
+        hits++;
+        moveToFront(slot);
+        return values[slot].asCached();
+    }
+
+    public synchronized void put(String algorithm, int sourceIndex, int destIndex, PathResult result) {
+        checkVersion();
+        int algorithmId = algorithmId(algorithm);
+        int slot = find(algorithmId, sourceIndex, destIndex);
+        if (slot != EMPTY) {
+            values[slot] = result;
+            moveToFront(slot);
+            return;
+        }
+
+        if (size < capacity) {
+            slot = size;
+            size++;
+        } else {
+            slot = oldest;
+            removeFromTable(slot);
+            unlink(slot);
+            evictions++;
+        }
+        keySource[slot] = sourceIndex;
+        keyDest[slot] = destIndex;
+        keyAlgorithm[slot] = algorithmId;
+        values[slot] = result;
+        insertIntoTable(slot);
+        linkAsNewest(slot);
+    }
+
+    public synchronized void clear() {
+        reset();
+    }
+
+    public synchronized int size() {
+        checkVersion();
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private void checkVersion() {
+        int current = graph.getModificationCount();
+        if (current != version) {
+            reset();
+            version = current;
+        }
+    }
+
+    // drops every entry; the counters are kept
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = EMPTY;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            values[slot] = null;
+        }
+        size = 0;
+        newest = EMPTY;
+        oldest = EMPTY;
+    }
+
+    private int algorithmId(String algorithm) {
+        for (int i = 0; i < algorithms.size(); i++) {
+            if (algorithms.get(i).equals(algorithm)) {
+                return i;
+            }
+        }
+        algorithms.add(algorithm);
+        return algorithms.size() - 1;
+    }
+
+    private int hash(int algorithmId, int sourceIndex, int destIndex) {
+        int h = sourceIndex * 0x9E3779B1 ^ destIndex * 0x85EBCA6B ^ algorithmId * 0xC2B2AE35;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(int algorithmId, int sourceIndex, int destIndex) {
+        int position = hash(algorithmId, sourceIndex, destIndex);
+        while (table[position] != EMPTY) {
+            int slot = table[position];
+            if (keySource[slot] == sourceIndex && keyDest[slot] == destIndex && keyAlgorithm[slot] == algorithmId) {
+                return slot;
+            }
+            position = (position + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private void insertIntoTable(int slot) {
+        int position = hash(keyAlgorithm[slot], keySource[slot], keyDest[slot]);
+        while (table[position] != EMPTY) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot;
+    }
+
+    // linear probing delete: later entries of the run shift back into the gap
+    private void removeFromTable(int slot) {
+        int position = hash(keyAlgorithm[slot], keySource[slot], keyDest[slot]);
+        while (table[position] != slot) {
+            position = (position + 1) & mask;
+        }
+        int gap = position;
+        position = (position + 1) & mask;
+        while (table[position] != EMPTY) {
+            int other = table[position];
+            int home = hash(keyAlgorithm[other], keySource[other], keyDest[other]);
+            // move the entry unless its home lies cyclically in (gap, position]
+            if (((position - home) & mask) >= ((position - gap) & mask)) {
+                table[gap] = other;
+                gap = position;
+            }
+            position = (position + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    private void moveToFront(int slot) {
+        if (slot != newest) {
+            unlink(slot);
+            linkAsNewest(slot);
+        }
+    }
+
+    private void linkAsNewest(int slot) {
+        newer[slot] = EMPTY;
+        older[slot] = newest;
+        if (newest != EMPTY) {
+            newer[newest] = slot;
+        }
+        newest = slot;
+        if (oldest == EMPTY) {
+            oldest = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] != EMPTY) {
+            older[newer[slot]] = older[slot];
+        } else {
+            newest = older[slot];
+        }
+        if (older[slot] != EMPTY) {
+            newer[older[slot]] = newer[slot];
+        } else {
+            oldest = newer[slot];
+        }
+    }
+}
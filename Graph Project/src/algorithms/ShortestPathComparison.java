@@ -9,10 +9,13 @@ public class ShortestPathComparison {
     private DijkstraAlgorithm dijkstra;
 
     public ShortestPathComparison(String csvFile) throws IOException {
-        graph = CSVParser.parseCSV(csvFile);
+        // writes <csvFile>.graph into the data directory on the first start and after the CSV changes
+        graph = CSVParser.parseCSVWithSnapshot(csvFile);
         dfs = new DFSAlgorithm(graph);
         dfsShortest = new DFSShortestAlgorithm(graph);
         dijkstra = new DijkstraAlgorithm(graph);
+        // report bytes allocated per query alongside the counters
+        SearchStatistics.setAllocationTracking(true);
     }
 
     // check if two cities are directly connected
@@ -28,7 +31,7 @@ public class ShortestPathComparison {
 
     // select 8 pairs of cities that are not directly connected
     private String[][] selectCityPairs() {
-        List<String> cities = graph.getCities();
+        DynamicArray<String> cities = graph.getCities();
         String[][] pairs = new String[8][2];
         int count = 0;
         Random random = new Random(42);
@@ -80,6 +83,7 @@ public class ShortestPathComparison {
         }
         double dfsTime = dfsResult.getExecutionTime() / 1000000.0;
         System.out.println("   Execution Time: " + dfsTime + " ms");
+        printWork(dfsResult);
         
         System.out.println("\n2. Modified DFS (Shortest Path Finder):");
         System.out.println("   Path: " + dfsShortestResult.getPathString());
@@ -90,6 +94,7 @@ public class ShortestPathComparison {
         }
         double dfsShortestTime = dfsShortestResult.getExecutionTime() / 1000000.0;
         System.out.println("   Execution Time: " + dfsShortestTime + " ms");
+        printWork(dfsShortestResult);
         
         System.out.println("\n3. Dijkstra's Algorithm:");
         System.out.println("   Path: " + dijkstraResult.getPathString());
@@ -100,6 +105,14 @@ public class ShortestPathComparison {
         }
         double dijkstraTime = dijkstraResult.getExecutionTime() / 1000000.0;
         System.out.println("   Execution Time: " + dijkstraTime + " ms");
+        printWork(dijkstraResult);
+    }
+
+    // search work counters next to the timing, when the engine reports them
+    private void printWork(PathResult result) {
+        if (result.getStatistics() != null) {
+            System.out.println("   Work: " + result.getStatistics());
+        }
     }
 
     // generate comparison table
@@ -0,0 +1,6 @@
+// common entry point of the algorithms that return a shortest path
+public interface ShortestPathEngine {
+    PathResult findShortestPath(String source, String destination);
+
+    String getName();
+}
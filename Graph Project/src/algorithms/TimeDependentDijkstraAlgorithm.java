@@ -0,0 +1,145 @@
+/**
+ * Earliest-arrival search over TravelTimeProfiles. Labels are arrival times
+ * instead of distances: a city reached at time t is left at t, and the edge
+ * costs its profile's travel time for that departure. Because the profiles
+ * are FIFO, arriving earlier never hurts, so settling cities in order of
+ * arrival is exact just as in static Dijkstra. The result's total distance is
+ * the travel time from the departure. Reuses its arrays like
+ * DijkstraAlgorithm, so an instance must not be shared between threads.
+ */
+public class TimeDependentDijkstraAlgorithm implements ShortestPathEngine {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final TravelTimeProfiles profiles;
+    private final Graph graph;
+    private int departureTime;
+
+    // reused between queries, resized when the graph grows
+    private int[] arrival;
+    private int[] parent;
+    private IndexedMinHeap heap;
+    private int lastArrivalTime;
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long heapPops;
+    private long peakFrontier;
+
+    public TimeDependentDijkstraAlgorithm(TravelTimeProfiles profiles) {
+        this.profiles = profiles;
+        this.graph = profiles.getGraph();
+    }
+
+    public String getName() {
+        return "Time-Dependent Dijkstra";
+    }
+
+    // departure used by the two-argument findShortestPath, 0 unless set
+    public int getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(int departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    // arrival time of the last query that found a path, INF otherwise
+    public int getLastArrivalTime() {
+        return lastArrivalTime;
+    }
+
+    public PathResult findShortestPath(String source, String destination) {
+        return findShortestPath(source, destination, departureTime);
+    }
+
+    public PathResult findShortestPath(String source, String destination, int departure) {
+        long startTime = System.nanoTime();
+        lastArrivalTime = INF;
+
+        int sourceIndex = graph.getCityIndex(source);
+        int destIndex = graph.getCityIndex(destination);
+
+        if (sourceIndex == -1 || destIndex == -1) {
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime);
+        }
+
+        if (sourceIndex == destIndex) {
+            List<String> path = new List<>();
+            path.add(source);
+            lastArrivalTime = departure;
+            long endTime = System.nanoTime();
+            return new PathResult(path, 0, endTime - startTime);
+        }
+
+        if (!profiles.isCurrent()) {
+            throw new IllegalStateException("Travel time profiles are out of date, rebuild them after changing the graph");
+        }
+        long allocationMark = SearchStatistics.allocationMark();
+        prepare(graph.getNumCities());
+        search(sourceIndex, destIndex, departure);
+        SearchStatistics statistics = new SearchStatistics(nodesSettled, edgesRelaxed, heapPushes, heapPops, 0,
+                peakFrontier);
+
+        if (arrival[destIndex] == INF) {
+            statistics.setAllocatedSince(allocationMark);
+            long endTime = System.nanoTime();
+            return new PathResult(new List<>(), 0, endTime - startTime, statistics);
+        }
+
+        lastArrivalTime = arrival[destIndex];
+        List<String> path = DijkstraAlgorithm.buildPath(graph, parent, destIndex);
+        statistics.setAllocatedSince(allocationMark);
+        long endTime = System.nanoTime();
+        return new PathResult(path, arrival[destIndex] - departure, endTime - startTime, statistics);
+    }
+
+    private void search(int sourceIndex, int destIndex, int departure) {
+        nodesSettled = 0;
+        edgesRelaxed = 0;
+        heapPops = 0;
+        arrival[sourceIndex] = departure;
+        heap.insert(sourceIndex, departure);
+        heapPushes = 1;
+        peakFrontier = 1;
+
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            heapPops++;
+            nodesSettled++;
+            if (u == destIndex) {
+                break;
+            }
+
+            int leave = arrival[u];
+            int end = graph.getEdgeEnd(u);
+            edgesRelaxed += end - graph.getEdgeStart(u);
+            for (int e = graph.getEdgeStart(u); e < end; e++) {
+                int v = graph.getEdgeTarget(e);
+                int reach = leave + profiles.travelTime(e, leave);
+                if (reach < arrival[v]) {
+                    arrival[v] = reach;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, reach);
+                    heapPushes++;
+                    if (heap.size() > peakFrontier) {
+                        peakFrontier = heap.size();
+                    }
+                }
+            }
+        }
+        heap.clear();
+    }
+
+    private void prepare(int numCities) {
+        if (arrival == null || arrival.length != numCities) {
+            arrival = new int[numCities];
+            parent = new int[numCities];
+            heap = new IndexedMinHeap(numCities);
+        }
+        for (int i = 0; i < numCities; i++) {
+            arrival[i] = INF;
+            parent[i] = -1;
+        }
+    }
+}
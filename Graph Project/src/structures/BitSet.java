@@ -0,0 +1,58 @@
+// fixed-size set of flags packed 64 per long
+public class BitSet {
+    private final long[] words;
+    private final int size;
+
+    public BitSet(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public void clearAll() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0L;
+        }
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public BitSet copy() {
+        BitSet copy = new BitSet(size);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+    }
+}
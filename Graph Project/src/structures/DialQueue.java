@@ -0,0 +1,123 @@
+/**
+ * Dial's bucket queue: maxWeight + 1 circular buckets, one per distance value.
+ * While the minimum key is d every queued key lies in [d, d + maxWeight], so
+ * key % buckets identifies the bucket uniquely. Buckets are intrusive doubly
+ * linked lists over the ids, giving O(1) insert and decrease-key without allocation.
+ */
+public class DialQueue implements MonotoneQueue {
+    private final int numBuckets;
+    private final int[] bucketHead;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] keys;
+    private final boolean[] queued;
+    private int size;
+    private int cursor;     // bucket the scan for the minimum starts from
+    private int cursorKey;  // key that bucket stands for, never above the minimum
+    private boolean started;
+
+    public DialQueue(int capacity, int maxWeight) {
+        if (maxWeight < 1) {
+            maxWeight = 1;
+        }
+        this.numBuckets = maxWeight + 1;
+        this.bucketHead = new int[numBuckets];
+        for (int i = 0; i < numBuckets; i++) {
+            bucketHead[i] = -1;
+        }
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.keys = new int[capacity];
+        this.queued = new boolean[capacity];
+        this.size = 0;
+        this.cursor = 0;
+        this.cursorKey = 0;
+        this.started = false;
+    }
+
+    public int getMaxWeight() {
+        return numBuckets - 1;
+    }
+
+    public void insertOrDecrease(int id, int key) {
+        if (queued[id]) {
+            if (key >= keys[id]) {
+                return;
+            }
+            unlink(id);
+            size--;
+        }
+        if (!started || key < cursorKey) {
+            cursor = key % numBuckets;
+            cursorKey = key;
+            started = true;
+        }
+        keys[id] = key;
+        int bucket = key % numBuckets;
+        next[id] = bucketHead[bucket];
+        prev[id] = -1;
+        if (bucketHead[bucket] != -1) {
+            prev[bucketHead[bucket]] = id;
+        }
+        bucketHead[bucket] = id;
+        queued[id] = true;
+        size++;
+    }
+
+    public int pollMin() {
+        if (size == 0) {
+            throw new RuntimeException("Queue is empty");
+        }
+        while (bucketHead[cursor] == -1) {
+            cursor++;
+            cursorKey++;
+            if (cursor == numBuckets) {
+                cursor = 0;
+            }
+        }
+        int id = bucketHead[cursor];
+        unlink(id);
+        queued[id] = false;
+        size--;
+        return id;
+    }
+
+    public int getKey(int id) {
+        return keys[id];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // decrease-key relinks the id, so nothing goes stale
+    public long getStalePops() {
+        return 0;
+    }
+
+    public void clear() {
+        for (int b = 0; b < numBuckets && size > 0; b++) {
+            int id = bucketHead[b];
+            while (id != -1) {
+                queued[id] = false;
+                size--;
+                id = next[id];
+            }
+            bucketHead[b] = -1;
+        }
+        size = 0;
+        started = false;
+    }
+
+    private void unlink(int id) {
+        int bucket = keys[id] % numBuckets;
+        if (prev[id] != -1) {
+            next[prev[id]] = next[id];
+        } else {
+            bucketHead[bucket] = next[id];
+        }
+        if (next[id] != -1) {
+            prev[next[id]] = prev[id];
+        }
+    }
+}
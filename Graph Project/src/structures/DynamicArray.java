@@ -0,0 +1,119 @@
+// array-backed counterpart of List with O(1) get/set and amortized O(1) add
+public class DynamicArray<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private Object[] data;
+    private int size;
+
+    public DynamicArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DynamicArray(int initialCapacity) {
+        if (initialCapacity < 1) {
+            initialCapacity = 1;
+        }
+        this.data = new Object[initialCapacity];
+        this.size = 0;
+    }
+
+    public void add(T item) {
+        if (size == data.length) {
+            grow();
+        }
+        data[size] = item;
+        size++;
+    }
+
+    public void add(int index, T item) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        if (size == data.length) {
+            grow();
+        }
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = item;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        return (T) data[index];
+    }
+
+    public void set(int index, T item) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        data[index] = item;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        T item = (T) data[index];
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        data[size] = null;
+        return item;
+    }
+
+    public boolean remove(T item) {
+        for (int i = 0; i < size; i++) {
+            if (data[i].equals(item)) {
+                remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(T item) {
+        for (int i = 0; i < size; i++) {
+            if (data[i].equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            data[i] = null;
+        }
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            Object[] newData = new Object[capacity];
+            System.arraycopy(data, 0, newData, 0, size);
+            data = newData;
+        }
+    }
+
+    public Object[] toArray() {
+        Object[] array = new Object[size];
+        System.arraycopy(data, 0, array, 0, size);
+        return array;
+    }
+
+    private void grow() {
+        Object[] newData = new Object[data.length * 2];
+        System.arraycopy(data, 0, newData, 0, size);
+        data = newData;
+    }
+}
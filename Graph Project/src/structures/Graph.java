@@ -1,7 +1,42 @@
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.Locale;
+
 public class Graph {
-    private List<String> cities;
-    private List<List<Edge>> adjacencyList;
+    private DynamicArray<String> cities;
     private static final int NO_CONNECTION = 99999;
+    private static final int INITIAL_TABLE_CAPACITY = 64;
+
+    // open addressing symbol table: normalized name (or alias) -> city index
+    private String[] nameKeys;
+    private int[] nameValues;
+    private int nameCount;
+
+    // name table slots sorted by key, rebuilt lazily for prefix search
+    private int[] prefixOrder;
+    private boolean prefixIndexValid;
+
+    // edges in insertion order, compiled into the CSR arrays by freeze()
+    private IntList edgeFrom;
+    private IntList edgeTo;
+    private IntList edgeWeight;
+
+    // compressed sparse row snapshot: edges of city u are offsets[u] .. offsets[u + 1] - 1
+    private int[] offsets;
+    private int[] targets;
+    private int[] weights;
+    private int maxEdgeWeight;
+    private boolean frozen;
+    // after loading a snapshot or an in-place update the CSR arrays are the only copy of the edges
+    private boolean edgesInSnapshot;
+    // bumped by every change to cities or edges, so caches can tell they are stale
+    private int modCount;
+
+    // optional reverse snapshot: incoming edges of city v are reverseOffsets[v] .. reverseOffsets[v + 1] - 1
+    private boolean keepReverse;
+    private int[] reverseOffsets;
+    private int[] reverseSources;
+    private int[] reverseWeights;
 
     public static class Edge {
         int to;
@@ -14,43 +49,455 @@ public class Graph {
     }
 
     public Graph() {
-        this.cities = new List<>();
-        this.adjacencyList = new List<>();
+        this.cities = new DynamicArray<>();
+        this.edgeFrom = new IntList();
+        this.edgeTo = new IntList();
+        this.edgeWeight = new IntList();
+        this.frozen = false;
+        this.modCount = 0;
+        this.keepReverse = false;
+        this.nameKeys = new String[INITIAL_TABLE_CAPACITY];
+        this.nameValues = new int[INITIAL_TABLE_CAPACITY];
+        this.nameCount = 0;
+        this.prefixIndexValid = false;
     }
 
     public int addCity(String cityName) {
+        unpackSnapshotEdges();
         cities.add(cityName);
-        adjacencyList.add(new List<Edge>());
-        return cities.size() - 1;
+        frozen = false;
+        modCount++;
+        int index = cities.size() - 1;
+        // the first city registered under a name keeps it
+        putName(normalizeName(cityName), index);
+        return index;
     }
 
+    /**
+     * Adds count cities without storing names, for generated graphs and
+     * DIMACS files with millions of numbered nodes. The city at index i is
+     * named by its 1-based number i + 1, which getCityName returns and
+     * getCityIndex accepts. Returns the index of the first new city.
+     */
+    public int addAnonymousCities(int count) {
+        unpackSnapshotEdges();
+        int first = cities.size();
+        cities.ensureCapacity(first + count);
+        for (int i = 0; i < count; i++) {
+            cities.add(null);
+        }
+        frozen = false;
+        modCount++;
+        return first;
+    }
+
+    /**
+     * Looks up a city in O(1). Matching ignores case and diacritics, so
+     * "SANLIURFA", "sanliurfa" and "Şanlıurfa" resolve to the same city.
+     * Aliases registered with addAlias are matched the same way, and
+     * anonymous cities are found by their number.
+     */
     public int getCityIndex(String cityName) {
-        for (int i = 0; i < cities.size(); i++) {
-            String currentCity = cities.get(i);
-            if (currentCity.equals(cityName)) {
-                return i;
+        if (cityName == null) {
+            return -1;
+        }
+        String key = normalizeName(cityName);
+        int mask = nameKeys.length - 1;
+        int slot = key.hashCode() & mask;
+        while (nameKeys[slot] != null) {
+            if (nameKeys[slot].equals(key)) {
+                return nameValues[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return anonymousIndex(key);
+    }
+
+    // "17" -> 16 when city 16 is anonymous, otherwise -1
+    private int anonymousIndex(String key) {
+        if (key.isEmpty() || key.length() > 10) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        long index = number - 1;
+        if (index < 0 || index >= cities.size() || cities.get((int) index) != null) {
+            return -1;
+        }
+        return (int) index;
+    }
+
+    /**
+     * Registers another name for an existing city, e.g. "Şanlıurfa" for "Urfa".
+     * Returns false if the alias is already taken.
+     */
+    public boolean addAlias(String alias, int cityIndex) {
+        if (cityIndex < 0 || cityIndex >= cities.size()) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        return putName(normalizeName(alias), cityIndex);
+    }
+
+    /**
+     * Returns up to limit distinct cities whose name or alias starts with the
+     * given prefix, in alphabetical order of the matched key. Uses binary search
+     * over the sorted key index, so the cost does not depend on the number of cities.
+     */
+    public List<String> findCitiesByPrefix(String prefix, int limit) {
+        List<String> matches = new List<>();
+        if (prefix == null || limit <= 0) {
+            return matches;
+        }
+        buildPrefixIndex();
+        String key = normalizeName(prefix);
+
+        // lower bound of the first key >= prefix
+        int low = 0;
+        int high = nameCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (nameKeys[prefixOrder[mid]].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return -1;
+
+        int[] found = new int[limit];
+        int foundCount = 0;
+        for (int i = low; i < nameCount && foundCount < limit; i++) {
+            int slot = prefixOrder[i];
+            if (!nameKeys[slot].startsWith(key)) {
+                break;
+            }
+            int cityIndex = nameValues[slot];
+            boolean duplicate = false;
+            for (int j = 0; j < foundCount; j++) {
+                if (found[j] == cityIndex) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                found[foundCount] = cityIndex;
+                foundCount++;
+            }
+        }
+        // prepend from the back so the list is built in linear time
+        for (int i = foundCount - 1; i >= 0; i--) {
+            matches.add(0, cities.get(found[i]));
+        }
+        return matches;
     }
 
     public String getCityName(int index) {
         if (index < 0 || index >= cities.size()) {
             return null;
         }
-        return cities.get(index);
+        String name = cities.get(index);
+        return name != null ? name : String.valueOf(index + 1);
     }
 
     public void addEdge(int from, int to, int weight) {
         if (weight != NO_CONNECTION && weight > 0) {
-            List<Edge> neighbors = adjacencyList.get(from);
-            Edge newEdge = new Edge(to, weight);
-            neighbors.add(newEdge);
+            unpackSnapshotEdges();
+            if (from < 0 || from >= cities.size() || to < 0 || to >= cities.size()) {
+                throw new IndexOutOfBoundsException("Index out of bounds");
+            }
+            edgeFrom.add(from);
+            edgeTo.add(to);
+            edgeWeight.add(weight);
+            frozen = false;
+            modCount++;
+        }
+    }
+
+    // reserves room for count more edges, so loaders that know the size avoid regrowing
+    public void ensureEdgeCapacity(int count) {
+        unpackSnapshotEdges();
+        int needed = edgeFrom.size() + count;
+        edgeFrom.ensureCapacity(needed);
+        edgeTo.ensureCapacity(needed);
+        edgeWeight.ensureCapacity(needed);
+    }
+
+    // bulk addEdge for loaders: the edges from -> targets[i] for i in start .. start + count - 1
+    public void addEdges(int from, int[] targets, int[] weights, int start, int count) {
+        if (from < 0 || from >= cities.size()) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        ensureEdgeCapacity(count);
+        for (int i = start; i < start + count; i++) {
+            addEdge(from, targets[i], weights[i]);
+        }
+    }
+
+    /**
+     * Gives every edge from -> to the new weight, in place in the frozen
+     * arrays, so it costs O(degree) instead of a rebuild. NO_CONNECTION removes
+     * the edges as in the CSV format. Returns false when there is no such edge.
+     * After a decrease getMaxEdgeWeight stays an upper bound.
+     */
+    public boolean setEdgeWeight(int from, int to, int weight) {
+        if (weight == NO_CONNECTION) {
+            return removeEdge(from, to);
+        }
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Edge weight must be positive: " + weight);
+        }
+        checkCity(from);
+        checkCity(to);
+        freeze();
+        boolean found = false;
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                weights[e] = weight;
+                found = true;
+            }
+        }
+        if (!found) {
+            return false;
+        }
+        if (keepReverse) {
+            for (int e = reverseOffsets[to]; e < reverseOffsets[to + 1]; e++) {
+                if (reverseSources[e] == from) {
+                    reverseWeights[e] = weight;
+                }
+            }
+        }
+        if (weight > maxEdgeWeight) {
+            maxEdgeWeight = weight;
+        }
+        edgesChangedInPlace();
+        return true;
+    }
+
+    /**
+     * Removes every edge from -> to. The arrays are compacted in place, which
+     * moves the edges after the removed ones: O(V + E), but no recount.
+     * Returns false when there is no such edge.
+     */
+    public boolean removeEdge(int from, int to) {
+        checkCity(from);
+        checkCity(to);
+        freeze();
+        int removed = removeFromRow(offsets, targets, weights, from, to);
+        if (removed == 0) {
+            return false;
+        }
+        targets = shrink(targets, targets.length - removed);
+        weights = shrink(weights, weights.length - removed);
+        if (keepReverse) {
+            removeFromRow(reverseOffsets, reverseSources, reverseWeights, to, from);
+            reverseSources = shrink(reverseSources, targets.length);
+            reverseWeights = shrink(reverseWeights, targets.length);
+        }
+        edgesChangedInPlace();
+        return true;
+    }
+
+    // drops the entries of row whose key matches and closes the gap; returns how many went
+    private static int removeFromRow(int[] rowOffsets, int[] keys, int[] values, int row, int key) {
+        int write = rowOffsets[row];
+        int end = rowOffsets[row + 1];
+        for (int e = rowOffsets[row]; e < end; e++) {
+            if (keys[e] != key) {
+                keys[write] = keys[e];
+                values[write] = values[e];
+                write++;
+            }
+        }
+        int removed = end - write;
+        if (removed > 0) {
+            System.arraycopy(keys, end, keys, write, keys.length - end);
+            System.arraycopy(values, end, values, write, values.length - end);
+            for (int r = row + 1; r < rowOffsets.length; r++) {
+                rowOffsets[r] -= removed;
+            }
+        }
+        return removed;
+    }
+
+    private static int[] shrink(int[] array, int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, length);
+        return result;
+    }
+
+    // the CSR arrays now hold the only up-to-date copy of the edges, as after loading a snapshot
+    private void edgesChangedInPlace() {
+        if (!edgesInSnapshot) {
+            edgeFrom = new IntList();
+            edgeTo = new IntList();
+            edgeWeight = new IntList();
+            edgesInSnapshot = true;
+        }
+        modCount++;
+    }
+
+    private void checkCity(int index) {
+        if (index < 0 || index >= cities.size()) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+    }
+
+    /**
+     * Compiles the edges added so far into flat CSR arrays. Algorithms call this
+     * once per query; it only does work after the graph has been modified.
+     * Edges of a city keep their insertion order.
+     */
+    public synchronized void freeze() {
+        if (frozen) {
+            return;
+        }
+        unpackSnapshotEdges();
+        int numCities = cities.size();
+        int edgeCount = edgeTo.size();
+        int[] newOffsets = new int[numCities + 1];
+        int[] newTargets = new int[edgeCount];
+        int[] newWeights = new int[edgeCount];
+
+        // counting sort by source city
+        for (int i = 0; i < edgeCount; i++) {
+            newOffsets[edgeFrom.get(i) + 1]++;
+        }
+        for (int u = 0; u < numCities; u++) {
+            newOffsets[u + 1] += newOffsets[u];
+        }
+        int maxWeight = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (edgeWeight.get(i) > maxWeight) {
+                maxWeight = edgeWeight.get(i);
+            }
+        }
+        int[] next = new int[numCities];
+        for (int u = 0; u < numCities; u++) {
+            next[u] = newOffsets[u];
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = next[edgeFrom.get(i)]++;
+            newTargets[slot] = edgeTo.get(i);
+            newWeights[slot] = edgeWeight.get(i);
+        }
+
+        offsets = newOffsets;
+        targets = newTargets;
+        weights = newWeights;
+        maxEdgeWeight = maxWeight;
+        if (keepReverse) {
+            buildReverse(numCities, edgeCount);
+        }
+        frozen = true;
+    }
+
+    /**
+     * Makes freeze() also build the incoming-edge snapshot, which backward
+     * searches need. It costs one more copy of the edge arrays.
+     */
+    public synchronized void enableReverseAdjacency() {
+        if (!keepReverse) {
+            keepReverse = true;
+            frozen = false;
+        }
+    }
+
+    public boolean hasReverseAdjacency() {
+        return keepReverse;
+    }
+
+    // same counting sort as freeze(), keyed by target city
+    private void buildReverse(int numCities, int edgeCount) {
+        int[] newOffsets = new int[numCities + 1];
+        int[] newSources = new int[edgeCount];
+        int[] newWeights = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            newOffsets[edgeTo.get(i) + 1]++;
+        }
+        for (int v = 0; v < numCities; v++) {
+            newOffsets[v + 1] += newOffsets[v];
         }
+        int[] next = new int[numCities];
+        for (int v = 0; v < numCities; v++) {
+            next[v] = newOffsets[v];
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = next[edgeTo.get(i)]++;
+            newSources[slot] = edgeFrom.get(i);
+            newWeights[slot] = edgeWeight.get(i);
+        }
+        reverseOffsets = newOffsets;
+        reverseSources = newSources;
+        reverseWeights = newWeights;
+    }
+
+    public int getModificationCount() {
+        return modCount;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // first edge index of a city in the frozen snapshot
+    public int getEdgeStart(int cityIndex) {
+        return offsets[cityIndex];
+    }
+
+    // one past the last edge index of a city in the frozen snapshot
+    public int getEdgeEnd(int cityIndex) {
+        return offsets[cityIndex + 1];
+    }
+
+    public int getEdgeTarget(int edgeIndex) {
+        return targets[edgeIndex];
+    }
+
+    public int getEdgeWeight(int edgeIndex) {
+        return weights[edgeIndex];
+    }
+
+    // first incoming edge index of a city, needs enableReverseAdjacency()
+    public int getReverseEdgeStart(int cityIndex) {
+        return reverseOffsets[cityIndex];
+    }
+
+    public int getReverseEdgeEnd(int cityIndex) {
+        return reverseOffsets[cityIndex + 1];
+    }
+
+    // city the incoming edge starts from
+    public int getReverseEdgeSource(int edgeIndex) {
+        return reverseSources[edgeIndex];
+    }
+
+    public int getReverseEdgeWeight(int edgeIndex) {
+        return reverseWeights[edgeIndex];
     }
 
+    // largest edge weight in the frozen snapshot, 0 without edges
+    public int getMaxEdgeWeight() {
+        return maxEdgeWeight;
+    }
+
+    public int getNumEdges() {
+        return edgesInSnapshot ? targets.length : edgeTo.size();
+    }
+
+    // builds a fresh list, prefer getEdgeStart/getEdgeEnd on hot paths
     public List<Edge> getNeighbors(int cityIndex) {
-        return adjacencyList.get(cityIndex);
+        freeze();
+        List<Edge> neighbors = new List<>();
+        // prepend from the back so the list is built in linear time
+        for (int e = offsets[cityIndex + 1] - 1; e >= offsets[cityIndex]; e--) {
+            neighbors.add(0, new Edge(targets[e], weights[e]));
+        }
+        return neighbors;
     }
 
     public int getNumCities() {
@@ -58,17 +505,233 @@ public class Graph {
     }
 
     public int getDistance(int from, int to) {
-        List<Edge> neighbors = adjacencyList.get(from);
-        for (int i = 0; i < neighbors.size(); i++) {
-            Edge edge = neighbors.get(i);
-            if (edge.to == to) {
-                return edge.weight;
+        freeze();
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return weights[e];
             }
         }
         return NO_CONNECTION;
     }
 
-    public List<String> getCities() {
+    /**
+     * Writes the cities, the name table with its aliases and the CSR arrays to
+     * a binary file that loadSnapshot maps back without parsing.
+     */
+    public void saveSnapshot(String filename) throws IOException {
+        GraphSnapshot.save(this, filename);
+    }
+
+    // same, recording the length and modification time of the file the graph was parsed from
+    public void saveSnapshot(String filename, long sourceLength, long sourceModified) throws IOException {
+        GraphSnapshot.save(this, filename, sourceLength, sourceModified);
+    }
+
+    public static Graph loadSnapshot(String filename) throws IOException {
+        return GraphSnapshot.load(filename);
+    }
+
+    // fails with an IOException unless the snapshot was saved with the same source length and time
+    public static Graph loadSnapshot(String filename, long sourceLength, long sourceModified) throws IOException {
+        return GraphSnapshot.load(filename, sourceLength, sourceModified);
+    }
+
+    // rebuilds a graph from snapshot contents; names holds null for anonymous cities
+    static Graph fromSnapshot(String[] names, String[] keys, int[] values, int[] offsets, int[] targets,
+                              int[] weights, int maxEdgeWeight) {
+        Graph graph = new Graph();
+        graph.cities.ensureCapacity(names.length);
+        for (String name : names) {
+            graph.cities.add(name);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            graph.putName(keys[i], values[i]);
+        }
+        graph.offsets = offsets;
+        graph.targets = targets;
+        graph.weights = weights;
+        graph.maxEdgeWeight = maxEdgeWeight;
+        graph.edgesInSnapshot = true;
+        graph.frozen = true;
+        return graph;
+    }
+
+    // wraps CSR arrays built elsewhere, such as by GraphGenerator, as a graph of anonymous cities
+    static Graph fromCompressedRows(int[] offsets, int[] targets, int[] weights) {
+        int maxWeight = 0;
+        for (int weight : weights) {
+            if (weight > maxWeight) {
+                maxWeight = weight;
+            }
+        }
+        return fromSnapshot(new String[offsets.length - 1], new String[0], new int[0], offsets, targets, weights,
+                maxWeight);
+    }
+
+    // raw name table for GraphSnapshot: empty slots hold a null key
+    String[] getNameTableKeys() {
+        return nameKeys;
+    }
+
+    int[] getNameTableValues() {
+        return nameValues;
+    }
+
+    int getNameCount() {
+        return nameCount;
+    }
+
+    // frozen CSR arrays for GraphSnapshot
+    int[] getOffsets() {
+        freeze();
+        return offsets;
+    }
+
+    int[] getTargets() {
+        freeze();
+        return targets;
+    }
+
+    int[] getWeights() {
+        freeze();
+        return weights;
+    }
+
+    // copies snapshot edges into the insertion lists before the first change
+    private void unpackSnapshotEdges() {
+        if (!edgesInSnapshot) {
+            return;
+        }
+        int numCities = offsets.length - 1;
+        edgeFrom.ensureCapacity(targets.length);
+        edgeTo.ensureCapacity(targets.length);
+        edgeWeight.ensureCapacity(targets.length);
+        for (int u = 0; u < numCities; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                edgeFrom.add(u);
+                edgeTo.add(targets[e]);
+                edgeWeight.add(weights[e]);
+            }
+        }
+        edgesInSnapshot = false;
+    }
+
+    // stored names by index; anonymous cities are null here, use getCityName for them
+    public DynamicArray<String> getCities() {
         return cities;
     }
+
+    /**
+     * Canonical form used by the symbol table: trimmed, lower case, with
+     * diacritics removed and the Turkish dotless i folded to i.
+     */
+    public static String normalizeName(String name) {
+        String trimmed = name.trim();
+        boolean ascii = true;
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) >= 128) {
+                ascii = false;
+                break;
+            }
+        }
+        if (!ascii) {
+            String decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+            StringBuilder sb = new StringBuilder(decomposed.length());
+            for (int i = 0; i < decomposed.length(); i++) {
+                char c = decomposed.charAt(i);
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    continue;
+                }
+                if (c == '\u0131') {
+                    c = 'i';
+                }
+                sb.append(c);
+            }
+            trimmed = sb.toString();
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean putName(String key, int cityIndex) {
+        if ((nameCount + 1) * 2 > nameKeys.length) {
+            growNameTable();
+        }
+        int mask = nameKeys.length - 1;
+        int slot = key.hashCode() & mask;
+        while (nameKeys[slot] != null) {
+            if (nameKeys[slot].equals(key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        nameKeys[slot] = key;
+        nameValues[slot] = cityIndex;
+        nameCount++;
+        prefixIndexValid = false;
+        return true;
+    }
+
+    private void growNameTable() {
+        String[] oldKeys = nameKeys;
+        int[] oldValues = nameValues;
+        nameKeys = new String[oldKeys.length * 2];
+        nameValues = new int[oldKeys.length * 2];
+        int mask = nameKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldKeys[i].hashCode() & mask;
+                while (nameKeys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                nameKeys[slot] = oldKeys[i];
+                nameValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private synchronized void buildPrefixIndex() {
+        if (prefixIndexValid) {
+            return;
+        }
+        int[] order = new int[nameCount];
+        int count = 0;
+        for (int i = 0; i < nameKeys.length; i++) {
+            if (nameKeys[i] != null) {
+                order[count] = i;
+                count++;
+            }
+        }
+        mergeSortByKey(order, new int[count], 0, count);
+        prefixOrder = order;
+        prefixIndexValid = true;
+    }
+
+    // sorts table slots [from, to) by their key
+    private void mergeSortByKey(int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSortByKey(order, buffer, from, mid);
+        mergeSortByKey(order, buffer, mid, to);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            if (nameKeys[order[left]].compareTo(nameKeys[order[right]]) <= 0) {
+                buffer[out++] = order[left++];
+            } else {
+                buffer[out++] = order[right++];
+            }
+        }
+        while (left < mid) {
+            buffer[out++] = order[left++];
+        }
+        while (right < to) {
+            buffer[out++] = order[right++];
+        }
+        for (int i = from; i < to; i++) {
+            order[i] = buffer[i];
+        }
+    }
 }
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format behind Graph.saveSnapshot and Graph.loadSnapshot.
+ *
+ * Layout, little endian:
+ * - header: magic "GRPH", version, city count, edge count, name table entry
+ *   count, max edge weight, name section length (long), length and
+ *   modification time (longs) of the file the graph was built from or
+ *   NO_SOURCE, CRC32 (long) of the body followed by the header fields before it
+ * - CSR arrays: offsets (cities + 1 ints), targets and weights (edges ints each)
+ * - names: per city a byte length (-1 for an anonymous city) and UTF-8 bytes,
+ *   then per name table entry the city index, a byte length and the key bytes
+ *
+ * Loading maps the file and copies the arrays with bulk int transfers, so no
+ * text is parsed and only the names become objects. The mapped pages come from
+ * the OS page cache, which all processes opening the same file share. Saving
+ * writes a temporary file and renames it over the old one, so a process that
+ * still maps the old file keeps its pages intact.
+ *
+ * A snapshot of a parsed file records that file's length and modification
+ * time. Loading with the source's current values rejects the snapshot on any
+ * difference, so a source replaced by an older copy is not hidden by it.
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x48505247; // "GRPH" in little endian
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 56;
+    // header bytes in front of the checksum, which the checksum also covers
+    private static final int CHECKED_HEADER_SIZE = 48;
+    // source length and modification time of a snapshot not built from a file
+    public static final long NO_SOURCE = -1;
+    // largest window mapped or buffered at once
+    private static final int CHUNK_BYTES = 1 << 26;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    public static void save(Graph graph, String filename) throws IOException {
+        save(graph, filename, NO_SOURCE, NO_SOURCE);
+    }
+
+    public static void save(Graph graph, String filename, long sourceLength, long sourceModified)
+            throws IOException {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        DynamicArray<String> cities = graph.getCities();
+        String[] keys = graph.getNameTableKeys();
+        int[] values = graph.getNameTableValues();
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            write(graph, temporary, offsets, targets, weights, cities, keys, values, sourceLength, sourceModified);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void write(Graph graph, Path path, int[] offsets, int[] targets, int[] weights,
+                              DynamicArray<String> cities, String[] keys, int[] values, long sourceLength,
+                              long sourceModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel, HEADER_SIZE);
+            writer.putInts(offsets);
+            writer.putInts(targets);
+            writer.putInts(weights);
+            long namesStart = writer.position();
+            for (int i = 0; i < cities.size(); i++) {
+                writer.putString(cities.get(i));
+            }
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    writer.putInt(values[slot]);
+                    writer.putString(keys[slot]);
+                }
+            }
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(cities.size());
+            header.putInt(targets.length);
+            header.putInt(graph.getNameCount());
+            header.putInt(graph.getMaxEdgeWeight());
+            header.putLong(writer.position() - namesStart);
+            header.putLong(sourceLength);
+            header.putLong(sourceModified);
+            writer.checksum.update(header.array(), 0, CHECKED_HEADER_SIZE);
+            header.putLong(writer.checksum.getValue());
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    public static Graph load(String filename) throws IOException {
+        return load(filename, false, NO_SOURCE, NO_SOURCE);
+    }
+
+    // also fails unless the snapshot was built from a file of this length and modification time
+    public static Graph load(String filename, long sourceLength, long sourceModified) throws IOException {
+        return load(filename, true, sourceLength, sourceModified);
+    }
+
+    private static Graph load(String filename, boolean checkSource, long sourceLength, long sourceModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a graph snapshot: " + filename);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + filename);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph snapshot version " + version + ": " + filename);
+            }
+            int numCities = header.getInt();
+            int numEdges = header.getInt();
+            int nameCount = header.getInt();
+            int maxEdgeWeight = header.getInt();
+            long namesLength = header.getLong();
+            long recordedLength = header.getLong();
+            long recordedModified = header.getLong();
+            long expectedChecksum = header.getLong();
+            if (checkSource && (recordedLength != sourceLength || recordedModified != sourceModified)) {
+                throw new IOException("Graph snapshot was built from a different source file: " + filename);
+            }
+            long namesStart = HEADER_SIZE + 4L * (numCities + 1) + 8L * numEdges;
+            // every city name takes at least its length, every name table entry an index and a length
+            if (numCities < 0 || numEdges < 0 || nameCount < 0 || namesLength < 0
+                    || namesStart + namesLength != size || namesLength > Integer.MAX_VALUE
+                    || 4L * numCities + 8L * nameCount > namesLength) {
+                throw new IOException("Truncated graph snapshot: " + filename);
+            }
+
+            CRC32 checksum = new CRC32();
+            for (long position = HEADER_SIZE; position < size; position += CHUNK_BYTES) {
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHUNK_BYTES, size - position)));
+            }
+            byte[] checkedHeader = new byte[CHECKED_HEADER_SIZE];
+            header.get(0, checkedHeader);
+            checksum.update(checkedHeader);
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Graph snapshot checksum mismatch: " + filename);
+            }
+
+            try {
+                return decode(channel, numCities, numEdges, nameCount, maxEdgeWeight, namesStart, namesLength);
+            } catch (RuntimeException e) {
+                // fields that passed the checksum but still do not fit together
+                throw new IOException("Corrupt graph snapshot: " + filename, e);
+            }
+        }
+    }
+
+    private static Graph decode(FileChannel channel, int numCities, int numEdges, int nameCount, int maxEdgeWeight,
+                                long namesStart, long namesLength) throws IOException {
+        long position = HEADER_SIZE;
+        int[] offsets = readInts(channel, position, numCities + 1);
+        position += 4L * (numCities + 1);
+        int[] targets = readInts(channel, position, numEdges);
+        position += 4L * numEdges;
+        int[] weights = readInts(channel, position, numEdges);
+
+        ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, namesStart, namesLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        String[] cityNames = new String[numCities];
+        for (int i = 0; i < numCities; i++) {
+            cityNames[i] = readString(names);
+        }
+        String[] keys = new String[nameCount];
+        int[] values = new int[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            values[i] = names.getInt();
+            keys[i] = readString(names);
+        }
+        return Graph.fromSnapshot(cityNames, keys, values, offsets, targets, weights, maxEdgeWeight);
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] result = new int[count];
+        int done = 0;
+        while (done < count) {
+            int chunk = Math.min(count - done, CHUNK_BYTES / 4);
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * chunk)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.get(result, done, chunk);
+            done += chunk;
+        }
+        return result;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("String length out of range: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // buffered sequential writer that checksums everything it writes
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+        final CRC32 checksum = new CRC32();
+
+        Writer(FileChannel channel, long start) {
+            this.channel = channel;
+            this.position = start;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            int done = 0;
+            while (done < values.length) {
+                if (buffer.remaining() < 4) {
+                    flush();
+                }
+                int chunk = Math.min(values.length - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, done, chunk);
+                buffer.position(buffer.position() + 4 * chunk);
+                done += chunk;
+            }
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int done = 0;
+            while (done < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(bytes.length - done, buffer.remaining());
+                buffer.put(bytes, done, chunk);
+                done += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
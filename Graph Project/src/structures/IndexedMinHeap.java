@@ -0,0 +1,169 @@
+/**
+ * Indexed 4-ary min-heap over the ids 0 .. capacity - 1 with int keys.
+ * Each id is in the heap at most once, so the size never exceeds the number
+ * of ids, and decreaseKey moves an entry in place instead of adding a new one.
+ * Keys are compared with {@code <}, never subtracted, so large keys cannot overflow.
+ */
+public class IndexedMinHeap {
+    private static final int ARITY = 4;
+
+    private int[] heap;  // heap position -> id
+    private int[] pos;   // id -> heap position, -1 when absent
+    private int[] keys;  // id -> key
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.keys = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            pos[i] = -1;
+        }
+        this.size = 0;
+    }
+
+    public int capacity() {
+        return pos.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return pos[id] != -1;
+    }
+
+    // last key given to the id, still valid after the id has been polled
+    public int getKey(int id) {
+        return keys[id];
+    }
+
+    public void insert(int id, int key) {
+        if (pos[id] != -1) {
+            throw new RuntimeException("Id is already in the heap");
+        }
+        heap[size] = id;
+        pos[id] = size;
+        keys[id] = key;
+        size++;
+        siftUp(size - 1);
+    }
+
+    public void decreaseKey(int id, int key) {
+        if (pos[id] == -1) {
+            throw new RuntimeException("Id is not in the heap");
+        }
+        if (key > keys[id]) {
+            throw new IllegalArgumentException("New key is larger than the current key");
+        }
+        keys[id] = key;
+        siftUp(pos[id]);
+    }
+
+    // inserts the id, or lowers its key if it is already queued; returns false if nothing changed
+    public boolean insertOrDecrease(int id, int key) {
+        if (pos[id] == -1) {
+            insert(id, key);
+            return true;
+        }
+        if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(pos[id]);
+            return true;
+        }
+        return false;
+    }
+
+    public int peekMin() {
+        if (size == 0) {
+            throw new RuntimeException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    public int peekMinKey() {
+        if (size == 0) {
+            throw new RuntimeException("Heap is empty");
+        }
+        return keys[heap[0]];
+    }
+
+    public int pollMin() {
+        if (size == 0) {
+            throw new RuntimeException("Heap is empty");
+        }
+        int min = heap[0];
+        pos[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    // O(size): only the ids still queued have to be reset
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        int key = keys[id];
+        while (index > 0) {
+            int parentIndex = (index - 1) / ARITY;
+            int parentId = heap[parentIndex];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[index] = parentId;
+            pos[parentId] = index;
+            index = parentIndex;
+        }
+        heap[index] = id;
+        pos[id] = index;
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        int key = keys[id];
+        while (true) {
+            int firstChild = index * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = firstChild + ARITY;
+            if (lastChild > size) {
+                lastChild = size;
+            }
+            int best = firstChild;
+            int bestKey = keys[heap[firstChild]];
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                int childKey = keys[heap[c]];
+                if (childKey < bestKey) {
+                    best = c;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            int childId = heap[best];
+            heap[index] = childId;
+            pos[childId] = index;
+            index = best;
+        }
+        heap[index] = id;
+        pos[id] = index;
+    }
+}
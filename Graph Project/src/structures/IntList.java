@@ -0,0 +1,89 @@
+public class IntList {
+    private static final int DEFAULT_CAPACITY = 16;
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntList(int initialCapacity) {
+        if (initialCapacity < 1) {
+            initialCapacity = 1;
+        }
+        this.data = new int[initialCapacity];
+        this.size = 0;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size] = value;
+        size++;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        return data[index];
+    }
+
+    public void set(int index, int value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        data[index] = value;
+    }
+
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Index out of bounds");
+        }
+        size--;
+        return data[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // keeps the backing array so the list can be refilled without allocating
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            grow(capacity);
+        }
+    }
+
+    public int[] toArray() {
+        int[] array = new int[size];
+        System.arraycopy(data, 0, array, 0, size);
+        return array;
+    }
+
+    public IntList copy() {
+        IntList copy = new IntList(size);
+        System.arraycopy(data, 0, copy.data, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = data.length * 2;
+        if (newCapacity < minCapacity) {
+            newCapacity = minCapacity;
+        }
+        int[] newData = new int[newCapacity];
+        System.arraycopy(data, 0, newData, 0, size);
+        data = newData;
+    }
+}
@@ -0,0 +1,61 @@
+public class IntStack {
+    private static final int DEFAULT_CAPACITY = 16;
+    private int[] data;
+    private int size;
+
+    public IntStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntStack(int initialCapacity) {
+        if (initialCapacity < 1) {
+            initialCapacity = 1;
+        }
+        this.data = new int[initialCapacity];
+        this.size = 0;
+    }
+
+    public void push(int value) {
+        if (size == data.length) {
+            int[] newData = new int[data.length * 2];
+            System.arraycopy(data, 0, newData, 0, size);
+            data = newData;
+        }
+        data[size] = value;
+        size++;
+    }
+
+    public int pop() {
+        if (isEmpty()) {
+            throw new RuntimeException("Stack is empty");
+        }
+        size--;
+        return data[size];
+    }
+
+    public int peek() {
+        if (isEmpty()) {
+            throw new RuntimeException("Stack is empty");
+        }
+        return data[size - 1];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public IntStack copy() {
+        IntStack copy = new IntStack(size);
+        System.arraycopy(data, 0, copy.data, 0, size);
+        copy.size = size;
+        return copy;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Priority queue over city ids whose extracted keys never decrease, which is
+ * all Dijkstra needs with non-negative weights. Bucket-based queues rely on
+ * that to beat comparison heaps.
+ */
+public interface MonotoneQueue {
+    // queues the id, or lowers its key if it is queued with a larger one
+    void insertOrDecrease(int id, int key);
+
+    // removes and returns an id with the smallest key
+    int pollMin();
+
+    // key the id had when it was last queued or polled
+    int getKey(int id);
+
+    boolean isEmpty();
+
+    // outdated entries skipped since the last clear, 0 for queues that move ids in place
+    long getStalePops();
+
+    // removes all queued ids so the queue can be reused for another search
+    void clear();
+}
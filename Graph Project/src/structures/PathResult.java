@@ -2,11 +2,26 @@ public class PathResult {
     private List<String> path;
     private int totalDistance;
     private long executionTime; // nanoseconds
+    private SearchStatistics statistics; // null when the engine does not count
+    private boolean fromCache;
 
     public PathResult(List<String> path, int totalDistance, long executionTime) {
+        this(path, totalDistance, executionTime, null);
+    }
+
+    public PathResult(List<String> path, int totalDistance, long executionTime, SearchStatistics statistics) {
         this.path = path;
         this.totalDistance = totalDistance;
         this.executionTime = executionTime;
+        this.statistics = statistics;
+        this.fromCache = false;
+    }
+
+    // same result marked as served from a cache; the execution time stays the original compute time
+    public PathResult asCached() {
+        PathResult cached = new PathResult(path, totalDistance, executionTime, statistics);
+        cached.fromCache = true;
+        return cached;
     }
 
     public List<String> getPath() {
@@ -21,6 +36,14 @@ public class PathResult {
         return executionTime;
     }
 
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
     public String getPathString() {
         if (path == null || path.isEmpty()) {
             return "No path found";
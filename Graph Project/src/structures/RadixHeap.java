@@ -0,0 +1,149 @@
+/**
+ * Monotone radix heap for int keys. Bucket 0 holds keys equal to the last
+ * extracted key; bucket i holds keys whose highest bit differing from it is
+ * bit i - 1. Each entry moves to a lower bucket at most 32 times, so the cost
+ * does not depend on the weight range, which makes it the fallback when Dial's
+ * bucket array would be too large. Decrease-key queues a new entry, and stale
+ * entries are dropped when their bucket is redistributed.
+ */
+public class RadixHeap implements MonotoneQueue {
+    private static final int NUM_BUCKETS = 33;
+
+    private final IntList[] bucketIds;
+    private final IntList[] bucketKeys;
+    private final int[] keys;
+    private final boolean[] queued;
+    private int size;
+    private int last;
+    private long stalePops;
+
+    public RadixHeap(int capacity) {
+        this.bucketIds = new IntList[NUM_BUCKETS];
+        this.bucketKeys = new IntList[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            bucketIds[i] = new IntList();
+            bucketKeys[i] = new IntList();
+        }
+        this.keys = new int[capacity];
+        this.queued = new boolean[capacity];
+        this.size = 0;
+        this.last = 0;
+    }
+
+    public void insertOrDecrease(int id, int key) {
+        if (key < last) {
+            throw new IllegalArgumentException("Key is smaller than the last extracted key");
+        }
+        if (queued[id]) {
+            if (key >= keys[id]) {
+                return;
+            }
+        } else {
+            queued[id] = true;
+            size++;
+        }
+        keys[id] = key;
+        int bucket = bucketOf(key);
+        bucketIds[bucket].add(id);
+        bucketKeys[bucket].add(key);
+    }
+
+    public int pollMin() {
+        if (size == 0) {
+            throw new RuntimeException("Queue is empty");
+        }
+        while (true) {
+            IntList ids = bucketIds[0];
+            IntList entryKeys = bucketKeys[0];
+            while (!ids.isEmpty()) {
+                int id = ids.removeLast();
+                int key = entryKeys.removeLast();
+                if (queued[id] && keys[id] == key) {
+                    queued[id] = false;
+                    size--;
+                    return id;
+                }
+                stalePops++;
+            }
+            redistribute();
+        }
+    }
+
+    public int getKey(int id) {
+        return keys[id];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getStalePops() {
+        return stalePops;
+    }
+
+    public void clear() {
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            IntList ids = bucketIds[b];
+            for (int i = 0; i < ids.size(); i++) {
+                queued[ids.get(i)] = false;
+            }
+            ids.clear();
+            bucketKeys[b].clear();
+        }
+        size = 0;
+        last = 0;
+        stalePops = 0;
+    }
+
+    // moves the smallest live key of the first non-empty bucket into bucket 0
+    private void redistribute() {
+        int b = 1;
+        int newLast = Integer.MAX_VALUE;
+        while (b < NUM_BUCKETS) {
+            IntList ids = bucketIds[b];
+            IntList entryKeys = bucketKeys[b];
+            for (int i = 0; i < ids.size(); i++) {
+                int key = entryKeys.get(i);
+                if (queued[ids.get(i)] && keys[ids.get(i)] == key && key < newLast) {
+                    newLast = key;
+                }
+            }
+            if (newLast != Integer.MAX_VALUE) {
+                break;
+            }
+            // only stale entries here
+            stalePops += ids.size();
+            ids.clear();
+            entryKeys.clear();
+            b++;
+        }
+        if (b == NUM_BUCKETS) {
+            throw new RuntimeException("Queue is empty");
+        }
+
+        last = newLast;
+        IntList ids = bucketIds[b];
+        IntList entryKeys = bucketKeys[b];
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            int key = entryKeys.get(i);
+            if (queued[id] && keys[id] == key) {
+                int target = bucketOf(key);
+                bucketIds[target].add(id);
+                bucketKeys[target].add(key);
+            } else {
+                stalePops++;
+            }
+        }
+        ids.clear();
+        entryKeys.clear();
+    }
+
+    private int bucketOf(int key) {
+        int diff = key ^ last;
+        if (diff == 0) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(diff);
+    }
+}
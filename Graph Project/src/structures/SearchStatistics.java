@@ -0,0 +1,155 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Work counters of one search, attached to its PathResult. The counters are
+ * plain increments in the search loops and always on. Allocated bytes come
+ * from the JVM's per-thread allocation counter and are only measured while
+ * setAllocationTracking(true) is in effect; otherwise they read -1.
+ */
+public class SearchStatistics {
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    private static volatile boolean allocationTracking;
+
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapPushes;
+    private long heapPops;
+    private long stalePops;
+    private long peakFrontier;
+    private long bytesAllocated;
+
+    public SearchStatistics() {
+        this(0, 0);
+    }
+
+    public SearchStatistics(long nodesSettled, long edgesRelaxed) {
+        this(nodesSettled, edgesRelaxed, 0, 0, 0, 0);
+    }
+
+    public SearchStatistics(long nodesSettled, long edgesRelaxed, long heapPushes, long heapPops, long stalePops,
+                            long peakFrontier) {
+        this.nodesSettled = nodesSettled;
+        this.edgesRelaxed = edgesRelaxed;
+        this.heapPushes = heapPushes;
+        this.heapPops = heapPops;
+        this.stalePops = stalePops;
+        this.peakFrontier = peakFrontier;
+        this.bytesAllocated = -1;
+    }
+
+    // cities taken out of the queue with their final distance
+    public long getNodesSettled() {
+        return nodesSettled;
+    }
+
+    public void setNodesSettled(long nodesSettled) {
+        this.nodesSettled = nodesSettled;
+    }
+
+    // edges scanned from settled cities
+    public long getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    public void setEdgesRelaxed(long edgesRelaxed) {
+        this.edgesRelaxed = edgesRelaxed;
+    }
+
+    // queue updates: inserts plus decrease-keys, or pushes onto a DFS stack
+    public long getHeapPushes() {
+        return heapPushes;
+    }
+
+    public void setHeapPushes(long heapPushes) {
+        this.heapPushes = heapPushes;
+    }
+
+    // entries taken out of the queue or stack, stale ones included
+    public long getHeapPops() {
+        return heapPops;
+    }
+
+    public void setHeapPops(long heapPops) {
+        this.heapPops = heapPops;
+    }
+
+    // popped entries skipped because a shorter one was already settled (lazy deletion only)
+    public long getStalePops() {
+        return stalePops;
+    }
+
+    public void setStalePops(long stalePops) {
+        this.stalePops = stalePops;
+    }
+
+    // largest queue size, or deepest DFS stack, during the search
+    public long getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    public void setPeakFrontier(long peakFrontier) {
+        this.peakFrontier = peakFrontier;
+    }
+
+    // bytes the search allocated on its thread, -1 when not measured
+    public long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    public void setBytesAllocated(long bytesAllocated) {
+        this.bytesAllocated = bytesAllocated;
+    }
+
+    // counts of two searches added up, used by engines that run several
+    public void add(SearchStatistics other) {
+        nodesSettled += other.nodesSettled;
+        edgesRelaxed += other.edgesRelaxed;
+        heapPushes += other.heapPushes;
+        heapPops += other.heapPops;
+        stalePops += other.stalePops;
+        peakFrontier = Math.max(peakFrontier, other.peakFrontier);
+        if (other.bytesAllocated >= 0) {
+            bytesAllocated = Math.max(bytesAllocated, 0) + other.bytesAllocated;
+        }
+    }
+
+    public static void setAllocationTracking(boolean enabled) {
+        allocationTracking = enabled && THREADS != null;
+    }
+
+    public static boolean isAllocationTracking() {
+        return allocationTracking;
+    }
+
+    // bytes allocated by the current thread so far, -1 while tracking is off
+    public static long allocationMark() {
+        if (!allocationTracking) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // records the bytes allocated since allocationMark returned mark
+    public void setAllocatedSince(long mark) {
+        if (mark >= 0 && allocationTracking) {
+            bytesAllocated = THREADS.getCurrentThreadAllocatedBytes() - mark;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    public String toString() {
+        String counters = "settled=" + nodesSettled + ", relaxed=" + edgesRelaxed + ", pushes=" + heapPushes
+                + ", pops=" + heapPops + ", stale=" + stalePops + ", peak=" + peakFrontier;
+        return bytesAllocated >= 0 ? counters + ", allocated=" + bytesAllocated + "B" : counters;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Per-thread scratch state for one shortest path search at a time. Every entry
+ * carries the generation that wrote it, and begin() starts a new generation.
+ * Entries from older searches then read as unvisited, so a reset costs O(1)
+ * instead of clearing O(V) arrays, and a search only touches the cities it
+ * reaches. The arrays are cleared for real once every 2^31 searches, when the
+ * generation counter wraps.
+ */
+public class SearchWorkspace {
+    private static final int INF = Integer.MAX_VALUE;
+
+    private int[] dist;
+    private int[] parent;
+    private int[] stamp;
+    private int generation;
+    private IndexedMinHeap heap;
+
+    public SearchWorkspace(int numCities) {
+        this.dist = new int[numCities];
+        this.parent = new int[numCities];
+        this.stamp = new int[numCities];
+        this.generation = 0;
+        this.heap = new IndexedMinHeap(numCities);
+    }
+
+    public int capacity() {
+        return dist.length;
+    }
+
+    // starts a new search; everything written before reads as unvisited
+    public void begin() {
+        heap.clear();
+        if (generation == Integer.MAX_VALUE) {
+            for (int i = 0; i < stamp.length; i++) {
+                stamp[i] = 0;
+            }
+            generation = 0;
+        }
+        generation++;
+    }
+
+    public boolean isVisited(int cityIndex) {
+        return stamp[cityIndex] == generation;
+    }
+
+    public int getDistance(int cityIndex) {
+        return stamp[cityIndex] == generation ? dist[cityIndex] : INF;
+    }
+
+    public int getParent(int cityIndex) {
+        return stamp[cityIndex] == generation ? parent[cityIndex] : -1;
+    }
+
+    public void setLabel(int cityIndex, int distance, int parentIndex) {
+        dist[cityIndex] = distance;
+        parent[cityIndex] = parentIndex;
+        stamp[cityIndex] = generation;
+    }
+
+    public IndexedMinHeap getHeap() {
+        return heap;
+    }
+}
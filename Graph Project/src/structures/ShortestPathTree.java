@@ -0,0 +1,82 @@
+/**
+ * Result of a one-to-many search: the distance and parent of every city,
+ * as seen from one source. Any number of paths can be read off it without
+ * searching again. Unreachable cities have distance Integer.MAX_VALUE and
+ * parent -1.
+ */
+public class ShortestPathTree {
+    private Graph graph;
+    private int source;
+    private int[] dist;
+    private int[] parent;
+    private long executionTime; // nanoseconds spent building the tree
+    private SearchStatistics statistics;
+
+    public ShortestPathTree(Graph graph, int source, int[] dist, int[] parent, long executionTime,
+                            SearchStatistics statistics) {
+        this.graph = graph;
+        this.source = source;
+        this.dist = dist;
+        this.parent = parent;
+        this.executionTime = executionTime;
+        this.statistics = statistics;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getNumCities() {
+        return dist.length;
+    }
+
+    public int getDistance(int cityIndex) {
+        return dist[cityIndex];
+    }
+
+    // city before cityIndex on its shortest path, -1 for the source and unreachable cities
+    public int getParent(int cityIndex) {
+        return parent[cityIndex];
+    }
+
+    public boolean isReachable(int cityIndex) {
+        return dist[cityIndex] != Integer.MAX_VALUE;
+    }
+
+    // the distance array itself, not a copy
+    public int[] getDistances() {
+        return dist;
+    }
+
+    // the parent array itself, not a copy
+    public int[] getParents() {
+        return parent;
+    }
+
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    // city names from the source to cityIndex, empty if unreachable
+    public List<String> getPath(int cityIndex) {
+        List<String> path = new List<>();
+        if (!isReachable(cityIndex)) {
+            return path;
+        }
+        int node = cityIndex;
+        while (node != -1) {
+            path.add(0, graph.getCityName(node));
+            node = parent[node];
+        }
+        return path;
+    }
+
+    // reports the time of the whole tree search, which the paths share
+    public PathResult getPathResult(int cityIndex) {
+        return new PathResult(getPath(cityIndex), isReachable(cityIndex) ? dist[cityIndex] : 0, executionTime, statistics);
+    }
+}
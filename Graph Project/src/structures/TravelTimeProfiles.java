@@ -0,0 +1,359 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Departure-time dependent travel times for the edges of a frozen graph.
+ *
+ * A profile is a periodic piecewise-linear function from departure time to
+ * travel time, given by breakpoints (time, duration) with times in
+ * [0, period). Between breakpoints the duration is interpolated linearly, and
+ * after the last one it runs on to the first one of the next period. Each
+ * segment must fall by at most one time unit per time unit (FIFO): leaving
+ * later never means arriving earlier, which is what keeps a time-dependent
+ * Dijkstra exact.
+ *
+ * Profiles are deduplicated, so edges with the same traffic pattern share
+ * one. All breakpoints live in one interleaved int array (time, duration,
+ * time, ...) with an offset per profile. Edges map to profiles through an
+ * int array indexed by CSR edge index. Edges without a profile keep their
+ * static graph weight. Evaluation allocates nothing and reads one short run
+ * of the breakpoint array.
+ *
+ * The edge mapping follows the CSR layout at construction, so any change to
+ * the graph makes the profiles stale (isCurrent() turns false).
+ */
+public class TravelTimeProfiles {
+    public static final int STATIC = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Graph graph;
+    private final int period;
+    private final int modificationCount;
+    private final int[] edgeProfile; // CSR edge index -> profile id, STATIC for the graph weight
+
+    // profile p owns points[profileStart[p] .. profileStart[p + 1] - 1], time and duration interleaved
+    private int[] points;
+    private int pointInts;
+    private int[] profileStart;
+    private int profileCount;
+
+    // open addressing dedup table: hash of the breakpoints -> profile id, -1 when free
+    private int[] table;
+
+    public TravelTimeProfiles(Graph graph, int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        this.graph = graph;
+        this.period = period;
+        graph.freeze();
+        this.modificationCount = graph.getModificationCount();
+        this.edgeProfile = new int[graph.getNumEdges()];
+        for (int e = 0; e < edgeProfile.length; e++) {
+            edgeProfile[e] = STATIC;
+        }
+        this.points = new int[INITIAL_CAPACITY];
+        this.profileStart = new int[INITIAL_CAPACITY + 1];
+        this.table = new int[INITIAL_CAPACITY];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = -1;
+        }
+    }
+
+    /**
+     * Registers a profile and returns its id. An identical profile that was
+     * added before is reused instead of stored twice.
+     */
+    public int addProfile(int[] times, int[] durations) {
+        validate(times, durations);
+        int hash = hash(times, durations);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != -1) {
+            if (matches(table[slot], times, durations)) {
+                return table[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = profileCount;
+        int needed = pointInts + 2 * times.length;
+        if (needed > points.length) {
+            points = grow(points, Math.max(needed, 2 * points.length));
+        }
+        for (int i = 0; i < times.length; i++) {
+            points[pointInts++] = times[i];
+            points[pointInts++] = durations[i];
+        }
+        if (id + 2 > profileStart.length) {
+            profileStart = grow(profileStart, 2 * profileStart.length);
+        }
+        profileStart[id + 1] = pointInts;
+        profileCount++;
+        table[slot] = id;
+        // at most half full, so probe sequences stay short
+        if (2 * profileCount > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Gives every edge from -> to the profile. Returns false when there is no
+     * such edge.
+     */
+    public boolean setProfile(int from, int to, int[] times, int[] durations) {
+        return assignProfile(from, to, addProfile(times, durations));
+    }
+
+    // profile id, or STATIC for the graph weight, for every edge from -> to
+    public boolean assignProfile(int from, int to, int profile) {
+        requireCurrent();
+        checkProfile(profile);
+        boolean found = false;
+        int end = graph.getEdgeEnd(from);
+        for (int e = graph.getEdgeStart(from); e < end; e++) {
+            if (graph.getEdgeTarget(e) == to) {
+                edgeProfile[e] = profile;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // same by CSR edge index, for loaders that walk the edges themselves
+    public void assignProfile(int edgeIndex, int profile) {
+        requireCurrent();
+        checkProfile(profile);
+        edgeProfile[edgeIndex] = profile;
+    }
+
+    public int getProfile(int edgeIndex) {
+        return edgeProfile[edgeIndex];
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    // breakpoints stored over all profiles, shared ones counted once
+    public int getPointCount() {
+        return pointInts / 2;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    // false once the graph was changed, since edge indices may have moved
+    public boolean isCurrent() {
+        return graph.getModificationCount() == modificationCount;
+    }
+
+    // travel time over the edge when leaving at departure
+    public int travelTime(int edgeIndex, int departure) {
+        int profile = edgeProfile[edgeIndex];
+        if (profile == STATIC) {
+            return graph.getEdgeWeight(edgeIndex);
+        }
+        return evaluate(profile, departure);
+    }
+
+    /**
+     * Travel time of a profile when leaving at departure, any integer time;
+     * it is taken modulo the period. Interpolated values are rounded down,
+     * which keeps the FIFO property.
+     */
+    public int evaluate(int profile, int departure) {
+        int first = profileStart[profile];
+        int last = profileStart[profile + 1] - 2;
+        if (first == last) {
+            return points[first + 1];
+        }
+        int t = Math.floorMod(departure, period);
+        int t0;
+        int d0;
+        int t1;
+        int d1;
+        if (t < points[first]) {
+            // before the first breakpoint: the segment that wraps around from the last one
+            t0 = points[last] - period;
+            d0 = points[last + 1];
+            t1 = points[first];
+            d1 = points[first + 1];
+        } else {
+            // last breakpoint at or before t
+            int low = 0;
+            int high = (last - first) / 2;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (points[first + 2 * mid] <= t) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int at = first + 2 * low;
+            t0 = points[at];
+            d0 = points[at + 1];
+            if (at == last) {
+                t1 = points[first] + period;
+                d1 = points[first + 1];
+            } else {
+                t1 = points[at + 2];
+                d1 = points[at + 3];
+            }
+        }
+        return d0 + (int) Math.floorDiv((long) (d1 - d0) * (t - t0), (long) (t1 - t0));
+    }
+
+    /**
+     * Reads profiles from a text file with lines "from,to,time:duration;time:duration;...".
+     * Cities are matched by name like getCityIndex. Blank lines, lines starting
+     * with '#' and lines naming unknown cities or missing edges are skipped.
+     * Returns the number of lines applied.
+     */
+    public int load(String filename) throws IOException {
+        int applied = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] fields = line.split(",", 3);
+                if (fields.length < 3) {
+                    continue;
+                }
+                int from = graph.getCityIndex(fields[0].trim());
+                int to = graph.getCityIndex(fields[1].trim());
+                if (from == -1 || to == -1) {
+                    continue;
+                }
+                String[] breakpoints = fields[2].trim().split(";");
+                int[] times = new int[breakpoints.length];
+                int[] durations = new int[breakpoints.length];
+                for (int i = 0; i < breakpoints.length; i++) {
+                    String point = breakpoints[i].trim();
+                    int colon = point.indexOf(':');
+                    if (colon == -1) {
+                        throw new IOException("Expected time:duration in " + filename + " line " + lineNumber
+                                + ": " + point);
+                    }
+                    try {
+                        times[i] = Integer.parseInt(point.substring(0, colon).trim());
+                        durations[i] = Integer.parseInt(point.substring(colon + 1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Expected time:duration in " + filename + " line " + lineNumber
+                                + ": " + point);
+                    }
+                }
+                try {
+                    if (setProfile(from, to, times, durations)) {
+                        applied++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid profile in " + filename + " line " + lineNumber + ": "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+        return applied;
+    }
+
+    private void validate(int[] times, int[] durations) {
+        if (times.length == 0 || times.length != durations.length) {
+            throw new IllegalArgumentException("A profile needs one duration per breakpoint and at least one");
+        }
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] < 0 || times[i] >= period) {
+                throw new IllegalArgumentException("Breakpoint time outside [0, " + period + "): " + times[i]);
+            }
+            if (durations[i] <= 0) {
+                throw new IllegalArgumentException("Travel time must be positive: " + durations[i]);
+            }
+            if (i > 0 && times[i] <= times[i - 1]) {
+                throw new IllegalArgumentException("Breakpoint times must increase: " + times[i]);
+            }
+        }
+        // FIFO: a segment may shrink the duration by at most the time it spans
+        for (int i = 0; i < times.length; i++) {
+            int next = (i + 1) % times.length;
+            long span = next == 0 ? (long) times[0] + period - times[i] : times[next] - times[i];
+            if (durations[i] - durations[next] > span) {
+                throw new IllegalArgumentException("Profile is not FIFO after time " + times[i]);
+            }
+        }
+    }
+
+    private void requireCurrent() {
+        if (!isCurrent()) {
+            throw new IllegalStateException("Graph was modified after the profiles were created");
+        }
+    }
+
+    private void checkProfile(int profile) {
+        if (profile != STATIC && (profile < 0 || profile >= profileCount)) {
+            throw new IndexOutOfBoundsException("Unknown profile: " + profile);
+        }
+    }
+
+    private boolean matches(int profile, int[] times, int[] durations) {
+        int start = profileStart[profile];
+        if (profileStart[profile + 1] - start != 2 * times.length) {
+            return false;
+        }
+        for (int i = 0; i < times.length; i++) {
+            if (points[start + 2 * i] != times[i] || points[start + 2 * i + 1] != durations[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(int[] times, int[] durations) {
+        int hash = 1;
+        for (int i = 0; i < times.length; i++) {
+            hash = 31 * hash + times[i];
+            hash = 31 * hash + durations[i];
+        }
+        // spread the bits, the table uses the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private void rehash() {
+        int[] newTable = new int[2 * table.length];
+        for (int i = 0; i < newTable.length; i++) {
+            newTable[i] = -1;
+        }
+        int mask = newTable.length - 1;
+        for (int id = 0; id < profileCount; id++) {
+            int start = profileStart[id];
+            int hash = 1;
+            for (int i = start; i < profileStart[id + 1]; i++) {
+                hash = 31 * hash + points[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (newTable[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id;
+        }
+        table = newTable;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] result = new int[capacity];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+}